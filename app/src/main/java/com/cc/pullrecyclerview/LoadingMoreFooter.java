@@ -9,14 +9,16 @@ import android.view.ViewGroup;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
-import com.cc.pullrecyclerview.pview.listener.ILoadMoreState;
+import com.cc.pullrecyclerview.pview.listener.ILoadMoreErrorState;
 
 
-public class LoadingMoreFooter extends LinearLayout implements ILoadMoreState {
+public class LoadingMoreFooter extends LinearLayout implements ILoadMoreErrorState {
     private TextView mText;
     private String loadingHint = "正在加载...";
     private String noMoreHint = "没有更多了...";
     private String loadingDoneHint = "加载完成...";
+    private String errorHint = "加载失败,点击重试";
+    private OnClickListener mRetryListener;
 
     public LoadingMoreFooter(Context context) {
         super(context);
@@ -44,6 +46,10 @@ public class LoadingMoreFooter extends LinearLayout implements ILoadMoreState {
         loadingDoneHint = hint;
     }
 
+    public void setErrorHint(String hint) {
+        errorHint = hint;
+    }
+
     public void initView() {
         setGravity(Gravity.CENTER);
         setLayoutParams(new RecyclerView.LayoutParams(
@@ -60,16 +66,38 @@ public class LoadingMoreFooter extends LinearLayout implements ILoadMoreState {
     @Override
     public void onLoading() {
         mText.setText(loadingHint);
+        setRetryEnable(false);
     }
 
     @Override
     public void onComplete() {
         mText.setText(loadingDoneHint);
+        setRetryEnable(false);
     }
 
     @Override
     public void onNoMore() {
         mText.setText(noMoreHint);
+        setRetryEnable(false);
+    }
+
+    @Override
+    public void onError() {
+        mText.setText(errorHint);
+        setRetryEnable(true);
+    }
+
+    @Override
+    public void setOnRetryListener(OnClickListener listener) {
+        mRetryListener = listener;
+    }
+
+    /**
+     * 重试的点击放在文字上,不占用外部给footer设置的点击事件
+     */
+    private void setRetryEnable(boolean enable) {
+        mText.setOnClickListener(enable ? mRetryListener : null);
+        mText.setClickable(enable && mRetryListener != null);
     }
 
     @Override
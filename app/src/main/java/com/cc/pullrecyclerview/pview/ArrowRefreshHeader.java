@@ -1,8 +1,9 @@
 package com.cc.pullrecyclerview.pview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.content.Context;
-import android.os.Handler;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.view.Gravity;
@@ -18,6 +19,52 @@ public class ArrowRefreshHeader extends LinearLayout implements PullToRefreshHea
     public int mMeasuredHeight;
     private BaseArrowView mView;
     private String TAG = "ArrowRefreshHeader";
+    /**
+     * 下拉模式
+     */
+    private int mPullMode = PULL_MODE_LAYOUT;
+    /**
+     * 平移模式下头部在布局中的高度
+     */
+    private int mLayoutHeight = 0;
+    /**
+     * 平移模式下在布局高度之外的偏移
+     */
+    private int mPullOffset = 0;
+    private OnPullOffsetListener mOffsetListener;
+    /**
+     * 回弹动画,只创建一次,新的目标到来时取消后重新设置
+     */
+    private ValueAnimator mSettleAnimator;
+    private int mSettleTarget;
+    private boolean isSettleCanceled;
+    /**
+     * 回弹一个头部高度所用的时长,距离越短时长越短
+     */
+    private int mSettleDuration = 300;
+    private static final int MIN_SETTLE_DURATION = 100;
+    /**
+     * 刷新完成的状态展示多久之后收起,作为收起动画的startDelay
+     */
+    private static final int DONE_HOLD_DURATION = 200;
+    /**
+     * 正在收起,收起的动画结束之后回到STATE_NORMAL
+     */
+    private boolean isResetPending = false;
+
+    /**
+     * 平移模式下偏移变化的回调,由列表对子控件进行平移
+     */
+    public interface OnPullOffsetListener {
+        void onPullOffsetChanged(int offset);
+
+        /**
+         * 回弹结束后提交到布局中的高度发生了变化
+         *
+         * @param height
+         */
+        void onLayoutHeightChanged(int height);
+    }
 
     public ArrowRefreshHeader(Context context) {
         super(context);
@@ -48,6 +95,45 @@ public class ArrowRefreshHeader extends LinearLayout implements PullToRefreshHea
         addView(mView, new LayoutParams(LayoutParams.MATCH_PARENT, 0));
         measure(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
         mMeasuredHeight = getMeasuredHeight();
+        applyPullMode();
+    }
+
+    /**
+     * 设置下拉模式
+     *
+     * @param pullMode {@link #PULL_MODE_LAYOUT} 或者 {@link #PULL_MODE_TRANSLATE}
+     */
+    public void setPullMode(int pullMode) {
+        if (mPullMode == pullMode)
+            return;
+        mPullMode = pullMode;
+        mLayoutHeight = 0;
+        mPullOffset = 0;
+        applyPullMode();
+    }
+
+    public int getPullMode() {
+        return mPullMode;
+    }
+
+    public void setOnPullOffsetListener(OnPullOffsetListener listener) {
+        mOffsetListener = listener;
+    }
+
+    /**
+     * 平移模式下子控件固定为完整高度,贴着头部底部向上超出头部,由列表平移后露出来
+     */
+    private void applyPullMode() {
+        boolean translate = mPullMode == PULL_MODE_TRANSLATE;
+        setClipChildren(!translate);
+        ViewGroup.LayoutParams lp = getLayoutParams();
+        lp.height = translate ? mLayoutHeight : LayoutParams.WRAP_CONTENT;
+        setLayoutParams(lp);
+        if (mView != null) {
+            LayoutParams childLp = (LayoutParams) mView.getLayoutParams();
+            childLp.height = translate ? mMeasuredHeight : 0;
+            mView.setLayoutParams(childLp);
+        }
     }
 
     public void setState(int state) {
@@ -66,6 +152,7 @@ public class ArrowRefreshHeader extends LinearLayout implements PullToRefreshHea
 //                mView.onPulling(mMeasuredHeight, true);
                 break;
             case STATE_REFRESHING:
+                isResetPending = false;
                 smoothScrollTo(mMeasuredHeight);
                 mView.onRefreshing();
                 break;
@@ -84,36 +171,161 @@ public class ArrowRefreshHeader extends LinearLayout implements PullToRefreshHea
 
     public void setVisibleHeight(int height) {
         if (height < 0) height = 0;
+        if (mPullMode == PULL_MODE_TRANSLATE) {
+            setPullOffset(height - mLayoutHeight);
+            return;
+        }
         LayoutParams lp = (LayoutParams) mView.getLayoutParams();
         lp.height = height;
         mView.setLayoutParams(lp);
     }
 
     public int getVisibleHeight() {
+        if (mPullMode == PULL_MODE_TRANSLATE) {
+            return mLayoutHeight + mPullOffset;
+        }
         LayoutParams lp = (LayoutParams) mView.getLayoutParams();
         return lp.height;
     }
 
+    private void setPullOffset(int offset) {
+        if (offset == mPullOffset)
+            return;
+        mPullOffset = offset;
+        if (mOffsetListener != null) {
+            mOffsetListener.onPullOffsetChanged(offset);
+        }
+    }
+
+    /**
+     * 平移模式下回弹结束,把最终高度提交到布局中并清除平移,只在这里重新布局
+     *
+     * @param height 最终高度
+     */
+    private void settleLayoutHeight(int height) {
+        if (mPullMode != PULL_MODE_TRANSLATE)
+            return;
+        if (mLayoutHeight != height) {
+            mLayoutHeight = height;
+            ViewGroup.LayoutParams lp = getLayoutParams();
+            lp.height = height;
+            setLayoutParams(lp);
+            if (mOffsetListener != null) {
+                mOffsetListener.onLayoutHeightChanged(height);
+            }
+        }
+        setPullOffset(0);
+    }
+
 
+    /**
+     * 收起头部,收起的动画结束之后回到STATE_NORMAL
+     */
     public void reset() {
+        isResetPending = true;
         smoothScrollTo(0);
-        new Handler().postDelayed(new Runnable() {
-            public void run() {
-                setState(STATE_NORMAL);
-            }
-        }, 500);
     }
 
+    /**
+     * 回弹结束,状态的变化都由回弹动画的结束驱动
+     * 刷新完成时还在回弹到刷新高度的,在这里开始收起
+     *
+     * @param height 最终高度
+     */
+    private void onSettleEnd(int height) {
+        settleLayoutHeight(height);
+        if (!isResetPending)
+            return;
+        if (height == 0) {
+            isResetPending = false;
+            setState(STATE_NORMAL);
+        } else if (mState == STATE_DONE) {
+            smoothScrollTo(0, DONE_HOLD_DURATION);
+        }
+    }
+
+    /**
+     * 列表离开窗口时调用,取消回弹动画并直接停在最终高度,避免持有Activity.
+     * 头部自身的onDetachedFromWindow在列表notifyDataSetChanged时也会触发,不能在那里处理
+     */
+    void onHostDetachedFromWindow() {
+        if (mSettleAnimator != null) {
+            mSettleAnimator.cancel();
+        }
+        if (mView == null)
+            return;
+        if (isResetPending || mState == STATE_DONE) {
+            isResetPending = true;
+            setVisibleHeight(0);
+            onSettleEnd(0);
+        } else if (mState == STATE_REFRESHING) {
+            setVisibleHeight(mMeasuredHeight);
+            onSettleEnd(mMeasuredHeight);
+        }
+    }
+
+    /**
+     * 设置回弹一个头部高度所用的时长,实际时长按回弹距离等比缩短
+     *
+     * @param settleDuration 毫秒
+     */
+    public void setSettleDuration(int settleDuration) {
+        mSettleDuration = Math.max(0, settleDuration);
+    }
+
+    /**
+     * 回弹到指定高度,正在进行的回弹会被取消,同一时间只有一个动画
+     *
+     * @param destHeight
+     */
     private void smoothScrollTo(int destHeight) {
-        ValueAnimator animator = ValueAnimator.ofInt(getVisibleHeight(), destHeight);
-        animator.setDuration(300).start();
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                setVisibleHeight((int) animation.getAnimatedValue());
-            }
-        });
-        animator.start();
+        smoothScrollTo(destHeight, 0);
+    }
+
+    /**
+     * 延迟一段时间之后回弹,延迟期间取消同样不会回调结束
+     *
+     * @param destHeight
+     * @param startDelay 毫秒
+     */
+    private void smoothScrollTo(int destHeight, long startDelay) {
+        if (mSettleAnimator == null) {
+            mSettleAnimator = new ValueAnimator();
+            mSettleAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    setVisibleHeight((int) animation.getAnimatedValue());
+                }
+            });
+            mSettleAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationCancel(Animator animation) {
+                    isSettleCanceled = true;
+                }
+
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    if (!isSettleCanceled) {
+                        onSettleEnd(mSettleTarget);
+                    }
+                }
+            });
+        } else {
+            mSettleAnimator.cancel();
+        }
+        mSettleTarget = destHeight;
+        int startHeight = getVisibleHeight();
+        int distance = Math.abs(destHeight - startHeight);
+        if (distance == 0) {
+            onSettleEnd(destHeight);
+            return;
+        }
+        float fraction = mMeasuredHeight > 0 ? Math.min(1f, (float) distance / mMeasuredHeight) : 1f;
+        mSettleAnimator.setIntValues(startHeight, destHeight);
+        mSettleAnimator.setDuration(Math.min(mSettleDuration, Math.max(MIN_SETTLE_DURATION, (int) (mSettleDuration * fraction))));
+        mSettleAnimator.setStartDelay(startDelay);
+        isSettleCanceled = false;
+        mSettleAnimator.start();
     }
 
     public static String friendlyTime(Date time) {
@@ -146,6 +358,10 @@ public class ArrowRefreshHeader extends LinearLayout implements PullToRefreshHea
     @Override
     public void onMove(int dy) {
         if (getVisibleHeight() > 0 || dy > 0) {
+            if (mSettleAnimator != null) {
+                // 用户重新拖动时停止回弹,避免和手势同时修改高度
+                mSettleAnimator.cancel();
+            }
             setVisibleHeight(dy + getVisibleHeight());
             if (mState <= STATE_RELEASE_TO_REFRESH) { // 未处于刷新状态，更新箭头
                 if (getVisibleHeight() > mMeasuredHeight) {
@@ -186,11 +402,12 @@ public class ArrowRefreshHeader extends LinearLayout implements PullToRefreshHea
     @Override
     public void onRefreshComplete() {
         setState(STATE_DONE);
-        new Handler().postDelayed(new Runnable() {
-            public void run() {
-                reset();
-            }
-        }, 200);
+        isResetPending = true;
+        if (mSettleAnimator != null && mSettleAnimator.isStarted()) {
+            // 还在回弹到刷新高度或者已经在等待收起,由回弹结束时开始收起
+            return;
+        }
+        smoothScrollTo(0, DONE_HOLD_DURATION);
     }
 
 }
\ No newline at end of file
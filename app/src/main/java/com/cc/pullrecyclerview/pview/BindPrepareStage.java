@@ -0,0 +1,231 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import com.cc.pullrecyclerview.pview.listener.IBindPreparer;
+import com.cc.pullrecyclerview.pview.listener.IPlaceholderProvider;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * description: 绑定前的准备阶段,在后台线程为即将进入屏幕的条目执行IBindPreparer.onPrepare,
+ * 结果按真实adapter中的位置缓存,绑定时直接交给IBindPreparer.onBindPrepared
+ * 整体刷新时通过代数作废所有结果,包括还在后台执行的;局部变化时只调整受影响的位置
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class BindPrepareStage {
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * 准备好的结果,key为真实adapter中的位置
+     */
+    private final SparseArray<Object> mPrepared = new SparseArray<>();
+    /**
+     * 已经提交到后台还没有返回的位置
+     */
+    private final SparseBooleanArray mPending = new SparseBooleanArray();
+    private IBindPreparer mPreparer;
+    /**
+     * 滑动方向上提前准备的条数
+     */
+    private int mWindow;
+    private volatile int mGeneration;
+
+    void setPreparer(IBindPreparer preparer, int window) {
+        invalidate();
+        mPreparer = preparer;
+        mWindow = window;
+    }
+
+    boolean isEnabled() {
+        return mPreparer != null;
+    }
+
+    int getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * 数据整体发生变化,丢弃所有结果
+     */
+    void invalidate() {
+        cancelPending();
+        mPrepared.clear();
+    }
+
+    /**
+     * 插入数据,后面已经准备好的结果跟着数据后移
+     */
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        cancelPending();
+        offset(positionStart, itemCount);
+    }
+
+    /**
+     * 移除数据,丢弃被移除位置的结果,后面的结果跟着数据前移
+     */
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        cancelPending();
+        remove(positionStart, itemCount);
+        offset(positionStart + itemCount, -itemCount);
+    }
+
+    /**
+     * 数据内容变化,只丢弃变化位置的结果
+     */
+    void onItemRangeChanged(int positionStart, int itemCount) {
+        cancelPending();
+        remove(positionStart, itemCount);
+    }
+
+    /**
+     * 移动数据,等同于先移除再在新的位置插入
+     */
+    void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        cancelPending();
+        SparseArray<Object> moved = new SparseArray<>();
+        for (int i = 0; i < itemCount; i++) {
+            int index = mPrepared.indexOfKey(fromPosition + i);
+            if (index >= 0) {
+                moved.put(i, mPrepared.valueAt(index));
+            }
+        }
+        remove(fromPosition, itemCount);
+        offset(fromPosition + itemCount, -itemCount);
+        offset(toPosition, itemCount);
+        for (int i = 0; i < moved.size(); i++) {
+            mPrepared.put(toPosition + moved.keyAt(i), moved.valueAt(i));
+        }
+    }
+
+    /**
+     * 后台还没有返回的结果可能是按变化前的数据准备的,全部作废,已经准备好的结果保留
+     */
+    private void cancelPending() {
+        mGeneration++;
+        mPending.clear();
+        mMainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * 丢弃[positionStart, positionStart + itemCount)之间的结果
+     */
+    private void remove(int positionStart, int itemCount) {
+        for (int i = mPrepared.size() - 1; i >= 0; i--) {
+            int position = mPrepared.keyAt(i);
+            if (position >= positionStart && position < positionStart + itemCount) {
+                mPrepared.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * 位置不小于positionStart的结果移动offset
+     */
+    private void offset(int positionStart, int offset) {
+        if (offset == 0) {
+            return;
+        }
+        SparseArray<Object> shifted = new SparseArray<>();
+        for (int i = mPrepared.size() - 1; i >= 0; i--) {
+            int position = mPrepared.keyAt(i);
+            if (position >= positionStart) {
+                shifted.put(position + offset, mPrepared.valueAt(i));
+                mPrepared.removeAt(i);
+            }
+        }
+        for (int i = 0; i < shifted.size(); i++) {
+            mPrepared.put(shifted.keyAt(i), shifted.valueAt(i));
+        }
+    }
+
+    /**
+     * 在后台准备[from, to]之间的条目,并丢掉[keepFrom, keepTo]以外的结果,还是占位布局的位置没有数据,不准备
+     * 位置都是真实adapter中的位置
+     */
+    void prepare(int from, int to, int keepFrom, int keepTo, IPlaceholderProvider placeholders, Executor executor) {
+        trim(keepFrom, keepTo);
+        if (mPreparer == null || from > to) {
+            return;
+        }
+        int count = 0;
+        final int[] positions = new int[to - from + 1];
+        for (int position = from; position <= to; position++) {
+            if (placeholders != null && !placeholders.isLoaded(position)) {
+                continue;
+            }
+            if (mPrepared.indexOfKey(position) < 0 && !mPending.get(position)) {
+                mPending.put(position, true);
+                positions[count++] = position;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        final int size = count;
+        final int generation = mGeneration;
+        final IBindPreparer preparer = mPreparer;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Object[] results = new Object[size];
+                for (int i = 0; i < size && generation == mGeneration; i++) {
+                    results[i] = preparer.onPrepare(positions[i]);
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        for (int i = 0; i < size; i++) {
+                            // 被移出窗口的位置不再保存
+                            if (mPending.get(positions[i])) {
+                                mPending.delete(positions[i]);
+                                mPrepared.put(positions[i], results[i]);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 使用准备好的结果绑定,还没有准备好时在主线程准备
+     */
+    @SuppressWarnings("unchecked")
+    void bind(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        int index = mPrepared.indexOfKey(position);
+        Object prepared;
+        if (index >= 0) {
+            prepared = mPrepared.valueAt(index);
+        } else {
+            prepared = mPreparer.onPrepare(position);
+            mPending.delete(position);
+            mPrepared.put(position, prepared);
+        }
+        mPreparer.onBindPrepared(holder, position, prepared, payloads);
+    }
+
+    private void trim(int keepFrom, int keepTo) {
+        for (int i = mPrepared.size() - 1; i >= 0; i--) {
+            int position = mPrepared.keyAt(i);
+            if (position < keepFrom || position > keepTo) {
+                mPrepared.removeAt(i);
+            }
+        }
+        for (int i = mPending.size() - 1; i >= 0; i--) {
+            int position = mPending.keyAt(i);
+            if (position < keepFrom || position > keepTo) {
+                mPending.delete(position);
+            }
+        }
+    }
+}
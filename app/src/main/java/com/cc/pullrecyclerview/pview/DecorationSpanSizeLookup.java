@@ -0,0 +1,59 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.support.v7.widget.GridLayoutManager;
+
+/**
+ * description: GridLayoutManager使用的SpanSizeLookup,装饰布局占满一行,
+ * 真实数据转换成真实adapter中的位置之后交给用户设置的SpanSizeLookup
+ * 开启了span index缓存,数据变化时由GridLayoutManager负责清空
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class DecorationSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+    private final PullToRefreshRecyclerView mRecyclerView;
+    private final GridLayoutManager mLayoutManager;
+    /**
+     * 用户设置的SpanSizeLookup,为空时每条数据占一格
+     */
+    private final GridLayoutManager.SpanSizeLookup mInnerLookup;
+
+    private DecorationSpanSizeLookup(PullToRefreshRecyclerView recyclerView, GridLayoutManager layoutManager,
+                                     GridLayoutManager.SpanSizeLookup innerLookup) {
+        mRecyclerView = recyclerView;
+        mLayoutManager = layoutManager;
+        mInnerLookup = innerLookup;
+        setSpanIndexCacheEnabled(true);
+    }
+
+    /**
+     * 给GridLayoutManager安装SpanSizeLookup,已经设置的SpanSizeLookup会被包装而不是覆盖
+     *
+     * @param recyclerView
+     * @param layoutManager
+     */
+    static void install(PullToRefreshRecyclerView recyclerView, GridLayoutManager layoutManager) {
+        GridLayoutManager.SpanSizeLookup current = layoutManager.getSpanSizeLookup();
+        if (current instanceof DecorationSpanSizeLookup) {
+            DecorationSpanSizeLookup lookup = (DecorationSpanSizeLookup) current;
+            if (lookup.mRecyclerView == recyclerView && lookup.mLayoutManager == layoutManager) {
+                return;
+            }
+            current = lookup.mInnerLookup;
+        }
+        if (current instanceof GridLayoutManager.DefaultSpanSizeLookup) {
+            current = null;
+        }
+        layoutManager.setSpanSizeLookup(new DecorationSpanSizeLookup(recyclerView, layoutManager, current));
+    }
+
+    @Override
+    public int getSpanSize(int position) {
+        SectionTable sections = mRecyclerView.getSectionTable();
+        int itemPosition = sections.getItemPosition(position);
+        if (itemPosition < 0) {
+            return mLayoutManager.getSpanCount();
+        }
+        return mInnerLookup == null ? 1 : mInnerLookup.getSpanSize(itemPosition);
+    }
+}
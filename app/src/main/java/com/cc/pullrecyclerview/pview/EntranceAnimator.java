@@ -0,0 +1,148 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.animation.Animator;
+import android.animation.TimeInterpolator;
+import android.view.View;
+
+import com.cc.pullrecyclerview.R;
+import com.cc.pullrecyclerview.pview.animation.BaseAnimation;
+
+/**
+ * description: 每个item持有一个进入动画,重复绑定时复用,回收时取消并恢复
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class EntranceAnimator implements Animator.AnimatorListener {
+    private final View mView;
+    private final BaseAnimation mAnimation;
+    private final Animator mAnimator;
+    private final Budget mBudget;
+    /**
+     * 是否已经计入同时进行的动画数量
+     */
+    private boolean isCounted;
+    /**
+     * 动画结束时是否需要关闭硬件层
+     */
+    private boolean isLayerPromoted;
+
+    /**
+     * 同一个列表中所有进入动画共享的限制
+     */
+    static final class Budget {
+        /**
+         * 同时进行的动画的最大数量,0表示不限制
+         */
+        int maxRunning;
+        /**
+         * 动画过程中是否开启硬件层
+         */
+        boolean isHardwareLayer;
+        private int mRunning;
+
+        boolean isExhausted() {
+            return maxRunning > 0 && mRunning >= maxRunning;
+        }
+
+        int getRunning() {
+            return mRunning;
+        }
+    }
+
+    private EntranceAnimator(View view, BaseAnimation animation, Budget budget) {
+        mView = view;
+        mAnimation = animation;
+        mBudget = budget;
+        mAnimator = animation.getAnimators(view);
+        mAnimator.addListener(this);
+    }
+
+    /**
+     * 拿到item上缓存的进入动画,没有或者动画类型变化时重新创建
+     *
+     * @param view      item
+     * @param animation 当前使用的动画
+     * @param budget    所在列表的动画限制
+     * @return
+     */
+    static EntranceAnimator obtain(View view, BaseAnimation animation, Budget budget) {
+        EntranceAnimator entrance = (EntranceAnimator) view.getTag(R.id.pull_recycler_entrance_animator);
+        if (entrance != null && entrance.mAnimation == animation && entrance.mBudget == budget) {
+            return entrance;
+        }
+        if (entrance != null) {
+            entrance.cancel();
+        }
+        entrance = new EntranceAnimator(view, animation, budget);
+        view.setTag(R.id.pull_recycler_entrance_animator, entrance);
+        return entrance;
+    }
+
+    /**
+     * 取消item上正在进行的进入动画
+     *
+     * @param view
+     */
+    static void cancel(View view) {
+        EntranceAnimator entrance = (EntranceAnimator) view.getTag(R.id.pull_recycler_entrance_animator);
+        if (entrance != null) {
+            entrance.cancel();
+        }
+    }
+
+    /**
+     * item上是否有正在进行的进入动画
+     *
+     * @param view
+     * @return
+     */
+    static boolean isRunning(View view) {
+        EntranceAnimator entrance = (EntranceAnimator) view.getTag(R.id.pull_recycler_entrance_animator);
+        return entrance != null && entrance.mAnimator.isStarted();
+    }
+
+    void start(long duration, TimeInterpolator interpolator) {
+        mAnimator.cancel();
+        mAnimator.setInterpolator(interpolator);
+        mAnimator.setDuration(duration);
+        mAnimator.start();
+    }
+
+    void cancel() {
+        mAnimator.cancel();
+        mAnimation.reset(mView);
+    }
+
+    @Override
+    public void onAnimationStart(Animator animation) {
+        if (!isCounted) {
+            isCounted = true;
+            mBudget.mRunning++;
+        }
+        if (mBudget.isHardwareLayer && mView.getLayerType() == View.LAYER_TYPE_NONE) {
+            mView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            isLayerPromoted = true;
+        }
+    }
+
+    @Override
+    public void onAnimationEnd(Animator animation) {
+        if (isCounted) {
+            isCounted = false;
+            mBudget.mRunning--;
+        }
+        if (isLayerPromoted) {
+            isLayerPromoted = false;
+            mView.setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
+
+    @Override
+    public void onAnimationCancel(Animator animation) {
+    }
+
+    @Override
+    public void onAnimationRepeat(Animator animation) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.cc.pullrecyclerview.pview;
+
+import java.util.Random;
+
+/**
+ * description: 加载更多失败后的自动重试策略,指数退避并加上随机抖动,
+ * 避免网络不好时大量列表同时重试
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class LoadMoreRetryPolicy {
+    private final Random mRandom = new Random();
+    /**
+     * 连续失败多少次之后不再自动重试
+     */
+    private int mMaxRetries = 3;
+    private long mBaseDelay = 1000;
+    private long mMaxDelay = 30000;
+    /**
+     * 连续失败的次数
+     */
+    private int mFailures;
+
+    void setPolicy(int maxRetries, long baseDelay, long maxDelay) {
+        mMaxRetries = Math.max(0, maxRetries);
+        mBaseDelay = Math.max(0, baseDelay);
+        mMaxDelay = Math.max(mBaseDelay, maxDelay);
+    }
+
+    /**
+     * 记录一次失败
+     *
+     * @return 下次自动重试的延迟, 超过最大重试次数时返回-1
+     */
+    long onFailure() {
+        mFailures++;
+        if (mFailures > mMaxRetries) {
+            return -1;
+        }
+        long delay = (long) Math.min(mMaxDelay, mBaseDelay * Math.pow(2, mFailures - 1));
+        // 一半固定,一半随机
+        long half = delay / 2;
+        return half + (long) (mRandom.nextDouble() * (delay - half));
+    }
+
+    void reset() {
+        mFailures = 0;
+    }
+
+    int getFailureCount() {
+        return mFailures;
+    }
+}
@@ -0,0 +1,118 @@
+package com.cc.pullrecyclerview.pview;
+
+/**
+ * description: 根据加载更多的耗时和当前的滑动速度估算需要提前多少条触发加载更多,
+ * 使下一页数据在用户滑动到底部之前返回
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class LoadMoreThresholdEstimator {
+    /**
+     * 平滑系数,越大越偏向最近一次的值
+     */
+    private static final float SMOOTHING = 0.3f;
+    /**
+     * 两次滑动回调间隔超过该值认为是新的一次滑动,不参与速度计算
+     */
+    private static final long MAX_SCROLL_INTERVAL = 100;
+    /**
+     * 估算结果的放大系数,预留网络抖动的余量
+     */
+    private static final float SAFETY_FACTOR = 1.5f;
+
+    private int mMinThreshold = 1;
+    private int mMaxThreshold = 100;
+
+    private long mLoadStartTime = -1;
+    private long mLastLatency = -1;
+    private float mAverageLatency = -1;
+
+    private long mLastScrollTime = -1;
+    /**
+     * 滑动速度,单位px/ms
+     */
+    private float mVelocity;
+
+    private int mThreshold;
+
+    void setThresholdRange(int minThreshold, int maxThreshold) {
+        mMinThreshold = Math.max(0, minThreshold);
+        mMaxThreshold = Math.max(mMinThreshold, maxThreshold);
+    }
+
+    void onLoadMoreStart(long now) {
+        mLoadStartTime = now;
+    }
+
+    void onLoadMoreComplete(long now) {
+        if (mLoadStartTime < 0) {
+            return;
+        }
+        mLastLatency = now - mLoadStartTime;
+        mLoadStartTime = -1;
+        if (mAverageLatency < 0) {
+            mAverageLatency = mLastLatency;
+        } else {
+            mAverageLatency += SMOOTHING * (mLastLatency - mAverageLatency);
+        }
+    }
+
+    /**
+     * 加载更多被作废,不统计耗时
+     */
+    void onLoadMoreCancel() {
+        mLoadStartTime = -1;
+    }
+
+    void onScrolled(int distance, long now) {
+        long interval = now - mLastScrollTime;
+        mLastScrollTime = now;
+        if (interval <= 0 || interval > MAX_SCROLL_INTERVAL) {
+            return;
+        }
+        float velocity = (float) Math.abs(distance) / interval;
+        mVelocity += SMOOTHING * (velocity - mVelocity);
+    }
+
+    void onScrollIdle() {
+        mVelocity = 0;
+        mLastScrollTime = -1;
+    }
+
+    /**
+     * 根据单条的平均尺寸重新计算提前加载的条数
+     *
+     * @param itemExtent 单条的平均高度(横向列表为宽度)
+     * @return 提前加载的条数
+     */
+    int computeThreshold(float itemExtent) {
+        if (mAverageLatency < 0 || itemExtent <= 0) {
+            mThreshold = mMinThreshold;
+        } else {
+            float distance = mAverageLatency * mVelocity * SAFETY_FACTOR;
+            int threshold = (int) Math.ceil(distance / itemExtent);
+            mThreshold = Math.min(mMaxThreshold, Math.max(mMinThreshold, threshold));
+        }
+        return mThreshold;
+    }
+
+    int getThreshold() {
+        return mThreshold;
+    }
+
+    long getLastLatency() {
+        return mLastLatency;
+    }
+
+    long getAverageLatency() {
+        return mAverageLatency < 0 ? -1 : (long) mAverageLatency;
+    }
+
+    /**
+     * @return 滑动速度, 单位px/s
+     */
+    float getVelocity() {
+        return mVelocity * 1000;
+    }
+}
@@ -0,0 +1,178 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.cc.pullrecyclerview.pview.listener.IPageSource;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * description: 内存中的分页缓存,按命名空间和页的key保存,超过最大页数时移除最久没有使用的一页
+ * PageLoader绑定列表或者刷新时先展示缓存的页,再在后台重新加载,只刷新有变化的部分
+ * 多个PageLoader共用时通过命名空间区分,各自的第一页和清空不会互相影响,最大页数为所有命名空间共用
+ * 只在主线程使用
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public class PageCache<K, T> {
+    private final LinkedHashMap<CacheKey, IPageSource.Page<K, T>> mPages;
+    private final int mMaxPages;
+
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * @param maxPages 最多缓存的页数
+     */
+    public PageCache(int maxPages) {
+        mMaxPages = Math.max(1, maxPages);
+        // accessOrder为true时按访问顺序排列,第一个是最久没有使用的
+        mPages = new LinkedHashMap<CacheKey, IPageSource.Page<K, T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, IPageSource.Page<K, T>> eldest) {
+                return size() > mMaxPages;
+            }
+        };
+    }
+
+    /**
+     * 拿到缓存的页,会统计命中率
+     *
+     * @param namespace 区分数据的命名空间,比如分类id
+     * @param key       第一页为null
+     * @return 没有缓存时返回null
+     */
+    @Nullable
+    public IPageSource.Page<K, T> get(@NonNull Object namespace, @Nullable K key) {
+        IPageSource.Page<K, T> page = mPages.get(new CacheKey(namespace, key));
+        if (page == null) {
+            mMissCount++;
+        } else {
+            mHitCount++;
+        }
+        return page;
+    }
+
+    public void put(@NonNull Object namespace, @Nullable K key, IPageSource.Page<K, T> page) {
+        mPages.put(new CacheKey(namespace, key), page);
+    }
+
+    public void remove(@NonNull Object namespace, @Nullable K key) {
+        mPages.remove(new CacheKey(namespace, key));
+    }
+
+    /**
+     * 只清空该命名空间的页
+     *
+     * @param namespace
+     */
+    public void clear(@NonNull Object namespace) {
+        Iterator<CacheKey> iterator = mPages.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().namespace.equals(namespace)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 从第一页开始按nextKey取出连续缓存的页,遇到没有缓存的页、没有下一页或者达到maxPages时停止.
+     * 第一页的key为null,后面每一页的key为前一页的nextKey
+     *
+     * @param namespace
+     * @param maxPages  最多取出的页数,0表示不限制
+     * @return 第一页没有缓存时为空
+     */
+    List<IPageSource.Page<K, T>> getChain(@NonNull Object namespace, int maxPages) {
+        List<IPageSource.Page<K, T>> chain = new ArrayList<>();
+        IPageSource.Page<K, T> page = get(namespace, null);
+        while (page != null) {
+            chain.add(page);
+            if (page.nextKey == null || (maxPages > 0 && chain.size() >= maxPages)) {
+                break;
+            }
+            page = get(namespace, page.nextKey);
+        }
+        return chain;
+    }
+
+    /**
+     * 清空所有命名空间的页
+     */
+    public void clear() {
+        mPages.clear();
+    }
+
+    public int size() {
+        return mPages.size();
+    }
+
+    public int getMaxPages() {
+        return mMaxPages;
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 没有访问过时返回0
+     */
+    public float getHitRate() {
+        int total = mHitCount + mMissCount;
+        return total == 0 ? 0 : (float) mHitCount / total;
+    }
+
+    public void resetStats() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "PageCache{size=" + mPages.size() + "/" + mMaxPages
+                + ", hit=" + mHitCount + ", miss=" + mMissCount + "}";
+    }
+
+    /**
+     * 命名空间和页的key组合成的缓存key
+     */
+    private static final class CacheKey {
+        final Object namespace;
+        final Object key;
+
+        CacheKey(Object namespace, Object key) {
+            this.namespace = namespace;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return namespace.equals(other.namespace) && (key == null ? other.key == null : key.equals(other.key));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * namespace.hashCode() + (key == null ? 0 : key.hashCode());
+        }
+    }
+}
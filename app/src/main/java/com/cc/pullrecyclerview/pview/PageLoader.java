@@ -0,0 +1,563 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+import com.cc.pullrecyclerview.pview.listener.IDataApplier;
+import com.cc.pullrecyclerview.pview.listener.IItemComparator;
+import com.cc.pullrecyclerview.pview.listener.IPageSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * description: 分页加载,在后台线程通过IPageSource加载数据,回到主线程更新数据并通知adapter,
+ * 自动调用刷新和加载更多的完成方法.每个请求都有超时时间,超时或者失败时结束当前请求,不会一直处于加载中
+ * 设置最大页数后只保留最近的几页,超出时移除离当前位置最远的一页,被移除的页通过加载更多或者加载上一页重新加载
+ * 设置PageCache后绑定列表时先展示缓存的页,再在后台重新加载第一页,没有变化时不刷新
+ * adapter通过{@link #getItems()}拿到数据
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public class PageLoader<K, T> implements PullToRefreshRecyclerView.RequestLoadingListener,
+        PullToRefreshRecyclerView.LoadPreviousListener {
+    /**
+     * 默认的超时时间
+     */
+    private static final long DEFAULT_TIMEOUT = 10000;
+    /**
+     * 请求的类型,也是mRequests中的下标
+     */
+    private static final int LOAD_REFRESH = 0;
+    private static final int LOAD_MORE = 1;
+    private static final int LOAD_PREVIOUS = 2;
+    /**
+     * 展示缓存之后在后台重新加载第一页,不显示刷新状态
+     */
+    private static final int LOAD_REVALIDATE = 3;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final IPageSource<K, T> mSource;
+    private final List<T> mItems = new ArrayList<>();
+    private final List<T> mReadOnlyItems = Collections.unmodifiableList(mItems);
+    /**
+     * 当前保留的页,按顺序排列
+     */
+    private final List<PageEntry<K>> mPages = new ArrayList<>();
+    /**
+     * 从顶部移除的页的key,最后一个是离顶部最近的
+     */
+    private final List<K> mDroppedKeys = new ArrayList<>();
+    /**
+     * 正在执行的请求,每种类型同一时间只有一个
+     */
+    private final Request[] mRequests = new Request[4];
+    /**
+     * 后台重新加载之后对比新旧数据
+     */
+    private final RefreshDiffer mDiffer = new RefreshDiffer();
+    /**
+     * 分页缓存,为空时不缓存
+     */
+    private PageCache<K, T> mCache;
+    /**
+     * 在分页缓存中的命名空间
+     */
+    private Object mCacheNamespace;
+
+    private PullToRefreshRecyclerView mRecyclerView;
+    private Executor mExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+    private long mTimeout = DEFAULT_TIMEOUT;
+    /**
+     * 最多保留的页数,0表示不限制
+     */
+    private int mMaxPages = 0;
+    /**
+     * 不为空时刷新结果在后台对比之后局部刷新
+     */
+    private IItemComparator<T> mComparator;
+    /**
+     * 下一页的key
+     */
+    private K mNextKey;
+    private boolean isHasMore = true;
+
+    public PageLoader(@NonNull IPageSource<K, T> source) {
+        mSource = source;
+    }
+
+    /**
+     * 绑定列表,会替换列表的RequestLoadingListener和LoadPreviousListener
+     *
+     * @param recyclerView
+     */
+    public void attach(@NonNull PullToRefreshRecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        recyclerView.setRequestLoadingListener(this);
+        recyclerView.setLoadPreviousListener(this);
+        if (mItems.isEmpty() && restoreFromCache()) {
+            revalidate();
+        }
+    }
+
+    /**
+     * 设置分页缓存,多个PageLoader可以共用同一个缓存来保留离开页面时的数据,通过命名空间区分,需要在attach之前设置.
+     * 缓存通常比页面活得久,命名空间会一直被缓存持有,不能使用数据源、Activity、Fragment、View或者它们的内部类,
+     * 否则会泄漏页面,并且重新创建页面之后拿不到之前的缓存
+     *
+     * @param cache     为空时不缓存
+     * @param namespace 区分数据的命名空间,使用String或者分类id这类值对象,重新创建页面时使用相同的值才能拿到之前的缓存
+     */
+    public void setPageCache(@Nullable PageCache<K, T> cache, @NonNull Object namespace) {
+        mCache = cache;
+        mCacheNamespace = namespace;
+    }
+
+    /**
+     * 设置加载使用的线程池,默认为AsyncTask.THREAD_POOL_EXECUTOR
+     *
+     * @param executor
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * 设置每个请求的超时时间
+     *
+     * @param timeout 毫秒
+     */
+    public void setTimeout(long timeout) {
+        mTimeout = timeout;
+    }
+
+    /**
+     * 设置最多保留的页数,超出时移除离当前位置最远的一页.
+     * 只有整页都在加载上一页/加载更多的提前距离之外时才会移除,否则暂时保留超出的页,避免移除后马上又被重新加载.
+     * 保留的页需要能放下屏幕上可见的条数加上两个方向的提前加载条数,否则会一直超出,建议不小于3
+     *
+     * @param maxPages 0表示不限制
+     */
+    public void setMaxPages(int maxPages) {
+        mMaxPages = maxPages <= 0 ? 0 : Math.max(2, maxPages);
+    }
+
+    /**
+     * 刷新的结果会在后台对比,只刷新变化的条目,没有设置时按equals对比
+     *
+     * @param comparator
+     */
+    public void setItemComparator(@Nullable IItemComparator<T> comparator) {
+        mComparator = comparator;
+    }
+
+    /**
+     * 当前的数据,只读
+     *
+     * @return
+     */
+    public List<T> getItems() {
+        return mReadOnlyItems;
+    }
+
+    /**
+     * 取消正在进行的请求,并结束列表的加载状态
+     */
+    public void cancel() {
+        cancelRequests();
+        mDiffer.cancel();
+        if (mRecyclerView != null) {
+            mRecyclerView.reset();
+            mRecyclerView.loadPreviousComplete();
+        }
+    }
+
+    private void cancelRequests() {
+        for (int i = 0; i < mRequests.length; i++) {
+            cancel(i);
+        }
+    }
+
+    private void cancel(int type) {
+        Request request = mRequests[type];
+        if (request != null) {
+            mMainHandler.removeCallbacks(request.timeout);
+            request.task.cancel(true);
+            mRequests[type] = null;
+        }
+    }
+
+    @Override
+    public void onRefresh(long token) {
+        // 刷新会作废其他请求
+        cancelRequests();
+        mDiffer.cancel();
+        // 没有数据时先展示缓存
+        if (mItems.isEmpty()) {
+            restoreFromCache();
+        }
+        load(token, null, LOAD_REFRESH);
+    }
+
+    @Override
+    public void onLoadMore(long token) {
+        if (!isHasMore) {
+            mRecyclerView.loadMoreComplete(token);
+            mRecyclerView.setNoMore(true);
+            return;
+        }
+        load(token, mNextKey, LOAD_MORE);
+    }
+
+    @Override
+    public void onLoadPrevious(long token) {
+        if (mDroppedKeys.isEmpty()) {
+            mRecyclerView.loadPreviousComplete(token);
+            mRecyclerView.setHasPrevious(false);
+            return;
+        }
+        load(token, mDroppedKeys.get(mDroppedKeys.size() - 1), LOAD_PREVIOUS);
+    }
+
+    private void load(final long token, final K key, final int type) {
+        cancel(type);
+        final FutureTask<IPageSource.Page<K, T>> task = new FutureTask<IPageSource.Page<K, T>>(new Callable<IPageSource.Page<K, T>>() {
+            @Override
+            public IPageSource.Page<K, T> call() throws Exception {
+                return mSource.load(key);
+            }
+        }) {
+            @Override
+            protected void done() {
+                final FutureTask<IPageSource.Page<K, T>> self = this;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(token, key, type, self);
+                    }
+                });
+            }
+        };
+        // 超时时取消任务,取消同样会走到onLoaded
+        Runnable timeout = new Runnable() {
+            @Override
+            public void run() {
+                task.cancel(true);
+            }
+        };
+        mRequests[type] = new Request(task, timeout);
+        mMainHandler.postDelayed(timeout, mTimeout);
+        mExecutor.execute(task);
+    }
+
+    private void onLoaded(long token, K key, int type, FutureTask<IPageSource.Page<K, T>> task) {
+        // 主动取消的请求已经不在mRequests中
+        Request request = mRequests[type];
+        if (request == null || request.task != task) {
+            return;
+        }
+        mMainHandler.removeCallbacks(request.timeout);
+        mRequests[type] = null;
+        // 被新的请求作废,后台重新加载没有token,只会被刷新取消
+        if (mRecyclerView == null || (type != LOAD_REVALIDATE && !mRecyclerView.isRequestValid(token))) {
+            return;
+        }
+        IPageSource.Page<K, T> page = null;
+        if (!task.isCancelled()) {
+            try {
+                page = task.get();
+            } catch (Exception ignored) {
+            }
+        }
+        if (page == null) {
+            // 失败或者超时,结束这次请求,加载更多按照重试策略重新加载
+            if (type == LOAD_REFRESH) {
+                mRecyclerView.refreshComplete(token);
+            } else if (type == LOAD_MORE) {
+                mRecyclerView.loadMoreError(token);
+            } else if (type == LOAD_PREVIOUS) {
+                mRecyclerView.loadPreviousComplete(token);
+            }
+            return;
+        }
+        if (type == LOAD_REVALIDATE) {
+            applyRevalidate(key, page);
+            return;
+        }
+        if (mCache != null) {
+            // 刷新之后之前缓存的页可能已经过期
+            if (type == LOAD_REFRESH) {
+                mCache.clear(mCacheNamespace);
+            }
+            mCache.put(mCacheNamespace, key, page);
+        }
+        List<T> items = page.items == null ? Collections.<T>emptyList() : page.items;
+        if (type == LOAD_REFRESH) {
+            mNextKey = page.nextKey;
+            isHasMore = page.nextKey != null;
+            applyRefresh(token, key, items);
+        } else if (type == LOAD_MORE) {
+            mNextKey = page.nextKey;
+            isHasMore = page.nextKey != null;
+            applyNext(token, key, items);
+        } else {
+            applyPrevious(token, key, items);
+        }
+    }
+
+    private void applyRefresh(long token, K key, List<T> items) {
+        mPages.clear();
+        mPages.add(new PageEntry<>(key, items.size()));
+        mDroppedKeys.clear();
+        mRecyclerView.setHasPrevious(false);
+        if (!mItems.isEmpty()) {
+            // 对比完成后由列表调用refreshComplete,没有更多的状态在下一次加载更多时设置.
+            // 没有设置比较方式时按equals对比,数据没有变化时不会刷新任何条目
+            IItemComparator<T> comparator = mComparator != null ? mComparator : new EqualsComparator<T>();
+            mRecyclerView.refreshComplete(mItems, items, comparator, new IDataApplier<T>() {
+                @Override
+                public void onApplyData(List<T> newList) {
+                    mItems.clear();
+                    mItems.addAll(newList);
+                }
+            });
+            return;
+        }
+        mItems.clear();
+        mItems.addAll(items);
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter != null) {
+            adapter.notifyDataSetChanged();
+        }
+        mRecyclerView.refreshComplete(token);
+        if (!isHasMore) {
+            mRecyclerView.setNoMore(true);
+        }
+    }
+
+    private void applyNext(long token, K key, List<T> items) {
+        // 数据发生变化,正在进行的后台重新加载作废
+        cancel(LOAD_REVALIDATE);
+        mDiffer.cancel();
+        int start = mItems.size();
+        mItems.addAll(items);
+        mPages.add(new PageEntry<>(key, items.size()));
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter != null) {
+            adapter.notifyItemRangeInserted(start, items.size());
+        }
+        // 移除顶部的页,移除的是屏幕外的数据,LayoutManager会保持当前的位置.
+        // 移除之后第一个可见的数据仍然在加载上一页的提前距离之外才移除
+        int[] visible = mRecyclerView.getVisibleItemRange();
+        int distance = mRecyclerView.getLoadPreviousDistance();
+        while (mMaxPages > 0 && mPages.size() > mMaxPages && visible != null
+                && visible[0] - mPages.get(0).size > distance) {
+            cancel(LOAD_PREVIOUS);
+            mRecyclerView.loadPreviousComplete();
+            PageEntry<K> first = mPages.remove(0);
+            mItems.subList(0, first.size).clear();
+            mDroppedKeys.add(first.key);
+            if (adapter != null) {
+                adapter.notifyItemRangeRemoved(0, first.size);
+            }
+            mRecyclerView.setHasPrevious(true);
+            visible[0] -= first.size;
+        }
+        mRecyclerView.loadMoreComplete(token);
+        if (!isHasMore) {
+            mRecyclerView.setNoMore(true);
+        }
+    }
+
+    private void applyPrevious(long token, K key, List<T> items) {
+        cancel(LOAD_REVALIDATE);
+        mDiffer.cancel();
+        mDroppedKeys.remove(mDroppedKeys.size() - 1);
+        mItems.addAll(0, items);
+        mPages.add(0, new PageEntry<>(key, items.size()));
+        // 插入之后还没有重新布局,可见范围需要在插入前读取
+        int[] visible = mRecyclerView.getVisibleItemRange();
+        int distance = mRecyclerView.getLoadMoreDistance();
+        // 插入到顶部之后保持当前可见的数据不动
+        mRecyclerView.notifyPreviousItemsInserted(items.size());
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        // 移除底部的页,下次加载更多时重新加载.移除之后剩下的最后一条数据仍然在加载更多的提前距离之外才移除
+        while (mMaxPages > 0 && mPages.size() > mMaxPages && visible != null
+                && mItems.size() - mPages.get(mPages.size() - 1).size - 1 - (visible[1] + items.size()) > distance) {
+            // 正在进行的加载更多由下面的setNoMore(false)结束
+            cancel(LOAD_MORE);
+            PageEntry<K> last = mPages.remove(mPages.size() - 1);
+            int start = mItems.size() - last.size;
+            mItems.subList(start, mItems.size()).clear();
+            mNextKey = last.key;
+            isHasMore = true;
+            if (adapter != null) {
+                adapter.notifyItemRangeRemoved(start, last.size);
+            }
+            mRecyclerView.setNoMore(false);
+        }
+        mRecyclerView.loadPreviousComplete(token);
+        mRecyclerView.setHasPrevious(!mDroppedKeys.isEmpty());
+    }
+
+    /**
+     * 从第一页开始展示连续缓存的页
+     *
+     * @return 是否有缓存
+     */
+    private boolean restoreFromCache() {
+        if (mCache == null || mRecyclerView == null) {
+            return false;
+        }
+        List<IPageSource.Page<K, T>> chain = mCache.getChain(mCacheNamespace, mMaxPages);
+        if (chain.isEmpty()) {
+            return false;
+        }
+        mItems.clear();
+        mPages.clear();
+        mDroppedKeys.clear();
+        K key = null;
+        for (IPageSource.Page<K, T> page : chain) {
+            List<T> items = page.items == null ? Collections.<T>emptyList() : page.items;
+            mItems.addAll(items);
+            mPages.add(new PageEntry<>(key, items.size()));
+            key = page.nextKey;
+        }
+        // 停在没有缓存的页时从这一页继续加载更多
+        mNextKey = key;
+        isHasMore = key != null;
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter != null) {
+            adapter.notifyDataSetChanged();
+        }
+        mRecyclerView.setHasPrevious(false);
+        mRecyclerView.setNoMore(!isHasMore);
+        return true;
+    }
+
+    /**
+     * 在后台重新加载第一页
+     */
+    private void revalidate() {
+        load(RequestTracker.NO_TOKEN, null, LOAD_REVALIDATE);
+    }
+
+    /**
+     * 第一页没有变化时保留当前的数据,有变化时替换成新的第一页,只刷新变化的条目
+     */
+    private void applyRevalidate(final K key, final IPageSource.Page<K, T> page) {
+        final List<T> items = page.items == null ? Collections.<T>emptyList() : page.items;
+        if (!mPages.isEmpty() && mDroppedKeys.isEmpty()
+                && isSameItems(mItems.subList(0, mPages.get(0).size), items)) {
+            if (mCache != null) {
+                mCache.put(mCacheNamespace, key, page);
+            }
+            return;
+        }
+        if (mCache != null) {
+            mCache.clear(mCacheNamespace);
+            mCache.put(mCacheNamespace, key, page);
+        }
+        IDataApplier<T> applier = new IDataApplier<T>() {
+            @Override
+            public void onApplyData(List<T> newList) {
+                mItems.clear();
+                mItems.addAll(newList);
+                mPages.clear();
+                mPages.add(new PageEntry<>(key, newList.size()));
+                mDroppedKeys.clear();
+                mNextKey = page.nextKey;
+                isHasMore = page.nextKey != null;
+            }
+        };
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter != null) {
+            // 没有设置比较方式时按equals对比,同样只刷新变化的条目
+            IItemComparator<T> comparator = mComparator != null ? mComparator : new EqualsComparator<T>();
+            mDiffer.submit(adapter, mItems, items, comparator, applier, new RefreshDiffer.OnAppliedListener() {
+                @Override
+                public void onApplied() {
+                    mRecyclerView.setHasPrevious(false);
+                    mRecyclerView.setNoMore(!isHasMore);
+                }
+            }, mExecutor);
+            return;
+        }
+        applier.onApplyData(items);
+        mRecyclerView.setHasPrevious(false);
+        mRecyclerView.setNoMore(!isHasMore);
+    }
+
+    private boolean isSameItems(List<T> oldItems, List<T> newItems) {
+        if (oldItems.size() != newItems.size()) {
+            return false;
+        }
+        for (int i = 0, size = oldItems.size(); i < size; i++) {
+            T oldItem = oldItems.get(i);
+            T newItem = newItems.get(i);
+            if (mComparator != null) {
+                if (!mComparator.areItemsTheSame(oldItem, newItem) || !mComparator.areContentsTheSame(oldItem, newItem)) {
+                    return false;
+                }
+            } else if (oldItem == null ? newItem != null : !oldItem.equals(newItem)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 没有设置比较方式时使用,同一条数据和内容相同都按equals判断
+     */
+    private static final class EqualsComparator<T> implements IItemComparator<T> {
+        @Override
+        public boolean areItemsTheSame(T oldItem, T newItem) {
+            return oldItem == null ? newItem == null : oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(T oldItem, T newItem) {
+            return true;
+        }
+
+        @Override
+        public Object getChangePayload(T oldItem, T newItem) {
+            return null;
+        }
+    }
+
+    /**
+     * 保留的一页,记录加载时使用的key和条数
+     */
+    private static final class PageEntry<K> {
+        final K key;
+        final int size;
+
+        PageEntry(K key, int size) {
+            this.key = key;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 正在执行的请求和对应的超时处理
+     */
+    private static final class Request {
+        final FutureTask<?> task;
+        final Runnable timeout;
+
+        Request(FutureTask<?> task, Runnable timeout) {
+            this.task = task;
+            this.timeout = timeout;
+        }
+    }
+}
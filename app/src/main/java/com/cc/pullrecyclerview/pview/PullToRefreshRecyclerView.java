@@ -1,32 +1,46 @@
 package com.cc.pullrecyclerview.pview;
 
-import android.animation.Animator;
 import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.AttributeSet;
-import android.view.Gravity;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
-import android.widget.LinearLayout;
 
 import com.cc.pullrecyclerview.pview.animation.BaseAnimation;
 import com.cc.pullrecyclerview.pview.animation.TranslateAnimation;
+import com.cc.pullrecyclerview.pview.listener.IBindPreparer;
+import com.cc.pullrecyclerview.pview.listener.IDataApplier;
+import com.cc.pullrecyclerview.pview.listener.IItemComparator;
+import com.cc.pullrecyclerview.pview.listener.IPlaceholderProvider;
+import com.cc.pullrecyclerview.pview.listener.ILoadMoreErrorState;
 import com.cc.pullrecyclerview.pview.listener.ILoadMoreState;
+import com.cc.pullrecyclerview.pview.listener.IVisiblePositionFinder;
+import com.cc.pullrecyclerview.pview.listener.PullToRefreshHeaderHelper;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
 
@@ -62,10 +76,49 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * 下拉布局
      */
     private ArrowRefreshHeader mArrowView;
+    /**
+     * 下拉头部是否悬浮在列表之上
+     */
+    private boolean isRefreshHeaderPinned = false;
+    /**
+     * 悬浮模式下为头部增加的paddingTop
+     */
+    private int mPinnedPaddingTop = 0;
+    /**
+     * 用户设置的下拉模式
+     */
+    private int mPullMode = PullToRefreshHeaderHelper.PULL_MODE_LAYOUT;
+    /**
+     * 平移模式下当前的下拉偏移,新进入屏幕的子控件也需要平移
+     */
+    private int mPullOffset = 0;
+    //下拉头部这一行是否在屏幕上,不在屏幕上时平移其他行会留下空白
+    private boolean isArrowAttached = false;
     /**
      * 加载更多的标记
      */
     private boolean isNoMore = false;
+    /**
+     * 加载更多失败,重试之前不会再触发加载更多
+     */
+    private boolean isLoadMoreError = false;
+    /**
+     * 加载更多失败后的自动重试
+     */
+    private final LoadMoreRetryPolicy mRetryPolicy = new LoadMoreRetryPolicy();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mRetryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            retryLoadMore();
+        }
+    };
+    private final OnClickListener mRetryClickListener = new OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            retryLoadMore();
+        }
+    };
     /**
      * 进入动画的加载市场
      */
@@ -78,18 +131,46 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * 进入动画
      */
     private BaseAnimation mAnimation;
+    /**
+     * 默认的进入动画,没有设置进入动画时使用
+     */
+    private BaseAnimation mDefaultAnimation;
+    /**
+     * 进入动画同时进行的数量限制和硬件层设置
+     */
+    private final EntranceAnimator.Budget mAnimationBudget = new EntranceAnimator.Budget();
+    /**
+     * 滑动速度超过该值时不播放进入动画,单位px/s,0表示不跳过
+     */
+    private float mSkipAnimationVelocity = 0;
     /**
      * 开启进入动画的标记
      */
     private boolean isCanStartLoadAnimation = false;
     /**
-     * 头布局父容器
+     * 头布局,key为每个头布局单独的type
+     */
+    private final SparseArray<View> mHeaderViews = new SparseArray<>();
+    /**
+     * 头布局的type,按添加顺序排列
+     */
+    private final List<Integer> mHeaderTypes = new ArrayList<>();
+    /**
+     * 头布局的stableId,顺序和mHeaderTypes一致
      */
-    private LinearLayout mHeaderContainer;
+    private final List<Long> mHeaderIds = new ArrayList<>();
     /**
-     * 尾布局容器
+     * 尾布局,key为每个尾布局单独的type
      */
-    private LinearLayout mFooterContainer;
+    private final SparseArray<View> mFooterViews = new SparseArray<>();
+    /**
+     * 尾布局的type,按添加顺序排列
+     */
+    private final List<Integer> mFooterTypes = new ArrayList<>();
+    /**
+     * 尾布局的stableId,顺序和mFooterTypes一致
+     */
+    private final List<Long> mFooterIds = new ArrayList<>();
     /**
      * 是否正在加载,为了防止加载更多的时候多次触发
      */
@@ -99,13 +180,48 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      */
     private int mCurrentMode = MODE_REFRESH_ALL;
     /**
-     * 相关的type
+     * 相关的type,头布局和尾布局每个单独一个type,分别占用[20000,30000)和[30000,40000)
+     * 移除之后的type会被新添加的重新使用
+     */
+    private static final int VIEW_TYPE_ARROW = 10000;
+    private static final int VIEW_TYPE_HEADER = 20000;
+    private static final int VIEW_TYPE_FOOTER = 30000;
+    private static final int VIEW_TYPE_EMPTY = 50000;
+    private static final int VIEW_TYPE_LOADING = 40000;
+    private static final int VIEW_TYPE_DECORATION_RANGE = 10000;
+    /**
+     * 占位布局的type,不属于装饰布局,可以放入共用的缓存池
+     */
+    private static final int VIEW_TYPE_PLACEHOLDER = 60000;
+    /**
+     * 装饰布局占用的type范围[10000,60000)
+     */
+    private static final int VIEW_TYPE_DECORATOR_START = VIEW_TYPE_ARROW;
+    private static final int VIEW_TYPE_DECORATOR_END = VIEW_TYPE_EMPTY + 10000;
+    /**
+     * 后台任务使用的线程池
+     */
+    private Executor mBackgroundExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+    /**
+     * 后台提前创建ViewHolder
+     */
+    private final ViewHolderPreInflater mPreInflater = new ViewHolderPreInflater();
+    /**
+     * 后台准备绑定数据
+     */
+    private final BindPrepareStage mBindPrepareStage = new BindPrepareStage();
+    /**
+     * 刷新完成时在后台对比新旧数据
+     */
+    private final RefreshDiffer mRefreshDiffer = new RefreshDiffer();
+    /**
+     * 未加载位置的占位布局
+     */
+    private IPlaceholderProvider mPlaceholderProvider;
+    /**
+     * 是否使用了外部设置的缓存池
      */
-    private final int VIEW_TYPE_ARROW = 10000;
-    private final int VIEW_TYPE_HEADER = 20000;
-    private final int VIEW_TYPE_FOOTER = 30000;
-    private final int VIEW_TYPE_EMPTY = 50000;
-    private final int VIEW_TYPE_LOADING = 40000;
+    private boolean isRecycledViewPoolShared = false;
     /**
      * 相关滑动模式
      */
@@ -113,6 +229,15 @@ public class PullToRefreshRecyclerView extends RecyclerView {
     public static final int MODE_REFRESH_TOP = 998;
     public static final int MODE_REFRESH_BOTTOM = 999;
     public static final int MODE_REFRESH_ALL = 1000;
+    /**
+     * 装饰布局使用的stableId,从Long.MIN_VALUE开始加上对应的type,真实adapter的id不能落在这个区间.
+     * 头部和尾部的type会被重新使用,它们的id不跟type走,在type区间之后按添加顺序递增分配,不会重复
+     */
+    private static final long DECORATION_ID_BASE = Long.MIN_VALUE;
+    /**
+     * 上一个分配给头部或尾部布局的id序号
+     */
+    private long mLastDecorationId = 0;
     /**
      * 内部封转adapter
      */
@@ -121,6 +246,26 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * 回调监听
      */
     private LoadingListener mLoadingListener;
+    /**
+     * 带token的回调监听
+     */
+    private RequestLoadingListener mRequestLoadingListener;
+    /**
+     * 加载上一页的监听
+     */
+    private LoadPreviousListener mLoadPreviousListener;
+    /**
+     * 顶部之前是否还有数据(比如被移除的页)
+     */
+    private boolean isHasPrevious = false;
+    /**
+     * 是否正在加载上一页
+     */
+    private boolean isLoadingPrevious = false;
+    /**
+     * 正在进行的刷新和加载更多请求
+     */
+    private final RequestTracker mRequestTracker = new RequestTracker();
     private float mLastY = -1;
     /**
      * 数据观察触发
@@ -130,6 +275,30 @@ public class PullToRefreshRecyclerView extends RecyclerView {
     private boolean isOnlyFirstPlayAnima = true;
 
     private int mLastPosition = -1;
+    /**
+     * 距离列表底部多少条时提前加载更多,0表示只在滑动停止且到达底部时加载
+     */
+    private int mPrefetchItemCount = 0;
+    /**
+     * 距离列表底部多少屏时提前加载更多,和mPrefetchItemCount取较大值
+     */
+    private float mPrefetchScreenCount = 0;
+    /**
+     * 是否根据加载耗时和滑动速度自动调整提前加载的距离
+     */
+    private boolean isAdaptiveLoadMore = false;
+    /**
+     * 加载耗时和滑动速度的统计
+     */
+    private final LoadMoreThresholdEstimator mThresholdEstimator = new LoadMoreThresholdEstimator();
+    /**
+     * 根据LayoutManager选择的可见位置查找方式,可能在父类构造方法中赋值,不能有初始值
+     */
+    private IVisiblePositionFinder mPositionFinder;
+    /**
+     * 用户设置的可见位置查找方式
+     */
+    private IVisiblePositionFinder mCustomPositionFinder;
 
     @RestrictTo(LIBRARY_GROUP)
     @IntDef(value = {MODE_NONE, MODE_REFRESH_BOTTOM, MODE_REFRESH_TOP, MODE_REFRESH_ALL})
@@ -144,6 +313,25 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         void onLoadMore();
     }
 
+    /**
+     * 带token的回调监听,完成时通过refreshComplete(token)和loadMoreComplete(token)通知,
+     * 过期的token完成时会被忽略,刷新开始后正在进行的加载更多会过期
+     */
+    public interface RequestLoadingListener {
+
+        void onRefresh(long token);
+
+        void onLoadMore(long token);
+    }
+
+    /**
+     * 向上滑动到接近顶部并且之前还有数据时加载上一页,完成时调用loadPreviousComplete(token)
+     */
+    public interface LoadPreviousListener {
+
+        void onLoadPrevious(long token);
+    }
+
 
     public PullToRefreshRecyclerView(Context context) {
         this(context, null);
@@ -161,66 +349,185 @@ public class PullToRefreshRecyclerView extends RecyclerView {
 
     private void init() {
         mArrowView = new ArrowRefreshHeader(mContext);
+        mArrowView.setOnPullOffsetListener(new ArrowRefreshHeader.OnPullOffsetListener() {
+            @Override
+            public void onPullOffsetChanged(int offset) {
+                mPullOffset = offset;
+                applyPullOffsetToChildren();
+                if (isRefreshHeaderPinned) {
+                    mArrowView.setTranslationY(mArrowView.getVisibleHeight());
+                }
+            }
+
+            @Override
+            public void onLayoutHeightChanged(int height) {
+                if (isRefreshHeaderPinned) {
+                    // 悬浮模式下用paddingTop给头部留出位置
+                    setPadding(getPaddingLeft(), getPaddingTop() - mPinnedPaddingTop + height, getPaddingRight(), getPaddingBottom());
+                    mPinnedPaddingTop = height;
+                    mArrowView.setTranslationY(mArrowView.getVisibleHeight());
+                }
+            }
+        });
         mInterpolator = new DecelerateInterpolator();
     }
 
-    private void initFooterContainer() {
-        if (mFooterContainer != null)
-            return;
-        mFooterContainer = new LinearLayout(mContext);
-        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        mFooterContainer.setLayoutParams(params);
-        mFooterContainer.setOrientation(LinearLayout.VERTICAL);
-        mFooterContainer.setHorizontalGravity(Gravity.CENTER_HORIZONTAL);
+    /**
+     * 把下拉偏移应用到所有子控件上
+     */
+    private void applyPullOffsetToChildren() {
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            applyPullOffset(getChildAt(i));
+        }
     }
 
     /**
-     * 初始化头布局
+     * 把下拉偏移应用到子控件上,正在播放进入动画的子控件由动画控制平移,不做处理。
+     * 非悬浮模式下只有下拉头部这一行在屏幕上时才平移,否则清除平移
+     *
+     * @param child
      */
-    private void initHeaderContainer() {
-        if (mHeaderContainer != null)
+    private void applyPullOffset(View child) {
+        if (EntranceAnimator.isRunning(child))
             return;
-        mHeaderContainer = new LinearLayout(mContext);
-        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        mHeaderContainer.setLayoutParams(params);
-        mHeaderContainer.setOrientation(LinearLayout.VERTICAL);
-        mHeaderContainer.setHorizontalGravity(Gravity.CENTER_HORIZONTAL);
+        boolean translate = isRefreshHeaderPinned || isArrowAttached;
+        child.setTranslationY(translate ? mPullOffset : 0);
     }
 
     /**
-     * 添加头部布局
+     * 新进入屏幕的子控件和其他子控件保持相同的平移,复用的控件可能带着旧的平移,所以偏移为0时也要设置
+     *
+     * @param child
+     */
+    @Override
+    public void onChildAttachedToWindow(View child) {
+        super.onChildAttachedToWindow(child);
+        if (child == mArrowView) {
+            isArrowAttached = true;
+            applyPullOffsetToChildren();
+        } else {
+            applyPullOffset(child);
+        }
+    }
+
+    /**
+     * 下拉头部这一行离开屏幕后清除其他行的平移
+     *
+     * @param child
+     */
+    @Override
+    public void onChildDetachedFromWindow(View child) {
+        super.onChildDetachedFromWindow(child);
+        if (child == mArrowView) {
+            isArrowAttached = false;
+            applyPullOffsetToChildren();
+        }
+    }
+
+    /**
+     * 添加头部布局,每个头部布局都是单独的一行
      *
      * @param headerView
      */
     public void addHeaderView(@NonNull View headerView) {
-        if (mHeaderContainer == null)
-            initHeaderContainer();
-        addView2Container(mHeaderContainer, headerView);
+        checkDecorationView(headerView);
+        int viewType = nextDecorationType(mHeaderViews, VIEW_TYPE_HEADER);
+        mHeaderViews.put(viewType, headerView);
+        mHeaderTypes.add(viewType);
+        mHeaderIds.add(nextDecorationId());
+        dispatchDecorationChanged(SectionTable.SECTION_HEADER, mHeaderTypes.size() - 1, true);
     }
 
     /**
-     * 添加为布局
+     * 移除头部布局
+     *
+     * @param headerView
+     */
+    public void removeHeaderView(@NonNull View headerView) {
+        int index = mHeaderViews.indexOfValue(headerView);
+        if (index < 0)
+            return;
+        int viewType = mHeaderViews.keyAt(index);
+        mHeaderViews.removeAt(index);
+        int position = mHeaderTypes.indexOf(viewType);
+        mHeaderTypes.remove(position);
+        mHeaderIds.remove(position);
+        dispatchDecorationChanged(SectionTable.SECTION_HEADER, position, false);
+        getRecycledViewPool().setMaxRecycledViews(viewType, 0);
+    }
+
+    /**
+     * 添加为布局,每个尾部布局都是单独的一行
      *
      * @param footerView
      */
     public void addFooterView(View footerView) {
-        if (mFooterContainer == null)
-            initFooterContainer();
-        addView2Container(mFooterContainer, footerView);
+        checkDecorationView(footerView);
+        int viewType = nextDecorationType(mFooterViews, VIEW_TYPE_FOOTER);
+        mFooterViews.put(viewType, footerView);
+        mFooterTypes.add(viewType);
+        mFooterIds.add(nextDecorationId());
+        dispatchDecorationChanged(SectionTable.SECTION_FOOTER, mFooterTypes.size() - 1, true);
+    }
+
+    /**
+     * 移除尾部布局
+     *
+     * @param footerView
+     */
+    public void removeFooterView(@NonNull View footerView) {
+        int index = mFooterViews.indexOfValue(footerView);
+        if (index < 0)
+            return;
+        int viewType = mFooterViews.keyAt(index);
+        mFooterViews.removeAt(index);
+        int position = mFooterTypes.indexOf(viewType);
+        mFooterTypes.remove(position);
+        mFooterIds.remove(position);
+        dispatchDecorationChanged(SectionTable.SECTION_FOOTER, position, false);
+        getRecycledViewPool().setMaxRecycledViews(viewType, 0);
+    }
+
+    /**
+     * 范围内最小的未使用的type,移除的头部或尾部的type会被重新使用,不会超出范围.
+     * 重新使用的type在缓存池中的数量固定为0,避免拿到包装着被移除的View的ViewHolder
+     *
+     * @param views 头布局或尾布局
+     * @param start type范围的起点
+     * @return
+     */
+    private int nextDecorationType(SparseArray<View> views, int start) {
+        for (int viewType = start; viewType < start + VIEW_TYPE_DECORATION_RANGE; viewType++) {
+            if (views.indexOfKey(viewType) < 0) {
+                getRecycledViewPool().setMaxRecycledViews(viewType, 0);
+                return viewType;
+            }
+        }
+        throw new IllegalStateException("too many header or footer views");
     }
 
     /**
-     * 添加控件到指定容器
+     * 给新添加的头部或尾部布局分配stableId,每个View都是新的id,type被重新使用时
+     * RecyclerView也不会按id把被移除的View的ViewHolder交给新的布局
      *
-     * @param parent 指定容器
-     * @param child  子控件
+     * @return
      */
-    private void addView2Container(@Nullable ViewGroup parent, @Nullable View child) {
+    private long nextDecorationId() {
+        return DECORATION_ID_BASE + VIEW_TYPE_DECORATOR_END + ++mLastDecorationId;
+    }
+
+    /**
+     * 检查头部和尾部布局,没有设置宽高时和原来的容器一样占满宽度
+     *
+     * @param child 子控件
+     */
+    private void checkDecorationView(@Nullable View child) {
         if (child.getParent() != null) {
             throw new NullPointerException("child has parent");
         }
-        int childCount = parent.getChildCount();
-        parent.addView(child, childCount);
+        if (child.getLayoutParams() == null) {
+            child.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        }
     }
 
     /**
@@ -232,6 +539,48 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         isCanStartLoadAnimation = canStartLoadAnimation;
     }
 
+    /**
+     * 是否开启进入动画,并限制同时进行的动画数量,超出的item直接展示
+     *
+     * @param canStartLoadAnimation
+     * @param maxRunningAnimations  同时进行的最大数量,0表示不限制
+     */
+    public void setCanStartLoadAnimation(boolean canStartLoadAnimation, int maxRunningAnimations) {
+        isCanStartLoadAnimation = canStartLoadAnimation;
+        mAnimationBudget.maxRunning = Math.max(0, maxRunningAnimations);
+    }
+
+    /**
+     * 滑动速度超过该值时绑定的item不播放进入动画
+     *
+     * @param velocity px/s, 0表示不跳过
+     */
+    public void setLoadAnimationSkipVelocity(float velocity) {
+        mSkipAnimationVelocity = Math.max(0, velocity);
+    }
+
+    /**
+     * 进入动画过程中是否开启硬件层,动画结束后关闭
+     *
+     * @param hardwareLayer
+     */
+    public void setLoadAnimationHardwareLayer(boolean hardwareLayer) {
+        mAnimationBudget.isHardwareLayer = hardwareLayer;
+    }
+
+    /**
+     * 当前是否需要跳过进入动画
+     *
+     * @return
+     */
+    private boolean isSkipLoadAnimation() {
+        if (mAnimationBudget.isExhausted()) {
+            return true;
+        }
+        return mSkipAnimationVelocity > 0 && getScrollState() != SCROLL_STATE_IDLE
+                && mThresholdEstimator.getVelocity() > mSkipAnimationVelocity;
+    }
+
 
     /**
      * 设置空布局
@@ -251,17 +600,83 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         }
         mEmptyContainer.removeAllViews();
         mEmptyContainer.addView(emptyView);
-        int position = 0;
-        if (mWrapAdapter != null) {
-            if (mShowEmptyWithHeader & mWrapAdapter.getHeaderViewCount() != 0) {
-                position += mWrapAdapter.getHeaderViewCount();
-            }
-            position += mWrapAdapter.getArrowViewCount();
-            mWrapAdapter.notifyItemInserted(position);
-        }
+        invalidateSections();
+    }
+
+
+    /**
+     * 设置提前加载更多的条数,滑动过程中距离底部小于该条数时就会回调onLoadMore
+     *
+     * @param prefetchItemCount 0表示关闭
+     */
+    public void setLoadMorePrefetchItemCount(int prefetchItemCount) {
+        mPrefetchItemCount = Math.max(0, prefetchItemCount);
+    }
 
+    /**
+     * 设置提前加载更多的屏数,按当前一屏展示的条数换算
+     *
+     * @param prefetchScreenCount 0表示关闭
+     */
+    public void setLoadMorePrefetchScreenCount(float prefetchScreenCount) {
+        mPrefetchScreenCount = Math.max(0, prefetchScreenCount);
     }
 
+    /**
+     * 是否根据加载更多的耗时和当前滑动速度自动调整提前加载的距离,
+     * 开启后和固定的预加载距离取较大值
+     *
+     * @param adaptiveLoadMore
+     */
+    public void setAdaptiveLoadMore(boolean adaptiveLoadMore) {
+        isAdaptiveLoadMore = adaptiveLoadMore;
+    }
+
+    /**
+     * 设置自动调整时提前加载条数的范围
+     *
+     * @param minThreshold 最少提前的条数
+     * @param maxThreshold 最多提前的条数
+     */
+    public void setAdaptiveLoadMoreRange(int minThreshold, int maxThreshold) {
+        mThresholdEstimator.setThresholdRange(minThreshold, maxThreshold);
+    }
+
+    /**
+     * 最近一次自动计算的提前加载条数
+     *
+     * @return
+     */
+    public int getLoadMoreThreshold() {
+        return mThresholdEstimator.getThreshold();
+    }
+
+    /**
+     * 最近一次从onLoadMore到loadMoreComplete的耗时
+     *
+     * @return 毫秒, 没有数据时返回-1
+     */
+    public long getLastLoadMoreLatency() {
+        return mThresholdEstimator.getLastLatency();
+    }
+
+    /**
+     * 平滑之后的加载更多耗时
+     *
+     * @return 毫秒, 没有数据时返回-1
+     */
+    public long getAverageLoadMoreLatency() {
+        return mThresholdEstimator.getAverageLatency();
+    }
+
+    /**
+     * 当前的滑动速度
+     *
+     * @return px/s
+     */
+    public float getScrollVelocity() {
+        return mThresholdEstimator.getVelocity();
+    }
 
     /**
      * 设置动画加载时长
@@ -281,13 +696,28 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         this.mAnimation = animation;
     }
 
+    /**
+     * 当前使用的进入动画
+     *
+     * @return
+     */
+    private BaseAnimation getLoadAnimation() {
+        if (mAnimation != null) {
+            return mAnimation;
+        }
+        if (mDefaultAnimation == null) {
+            mDefaultAnimation = new TranslateAnimation();
+        }
+        return mDefaultAnimation;
+    }
+
     /**
      * 拿到headerView的数量
      *
      * @return
      */
     public int getHeaderViewSize() {
-        return mHeaderContainer == null ? 0 : mHeaderContainer.getChildCount();
+        return mHeaderViews.size();
     }
 
     /**
@@ -296,7 +726,7 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * @return
      */
     public int getFooterViewSize() {
-        return mFooterContainer == null ? 0 : mFooterContainer.getChildCount();
+        return mFooterViews.size();
     }
 
     /**
@@ -305,20 +735,59 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * @param loadMoreView
      */
     public void setLoadMoreView(@NonNull ILoadMoreState loadMoreView) {
-        mLoadMore = loadMoreView;
-        if (mLoadMore.getLoadMoreView() == null || mLoadMore.getLoadMoreView().getParent() != null) {
+        if (loadMoreView.getLoadMoreView() == null || loadMoreView.getLoadMoreView().getParent() != null) {
             throw new IllegalArgumentException("loadView is null or loadView had parent");
         }
+        if (mLoadMore instanceof ILoadMoreErrorState) {
+            ((ILoadMoreErrorState) mLoadMore).setOnRetryListener(null);
+        }
+        mLoadMore = loadMoreView;
+        if (mLoadMore instanceof ILoadMoreErrorState) {
+            ((ILoadMoreErrorState) mLoadMore).setOnRetryListener(mRetryClickListener);
+        }
+        invalidateSections();
     }
 
     /**
      * 进入的时候进行刷新
      */
     public void refresh() {
-        if (isCanRefresh() && mLoadingListener != null) {
+        if (isCanRefresh() && hasLoadingListener()) {
             mArrowView.setState(ArrowRefreshHeader.STATE_REFRESHING);
+            dispatchRefresh();
+        }
+    }
+
+    /**
+     * 开始刷新,正在刷新时合并为同一次请求,正在进行的加载更多会被作废.
+     * 刷新结果已经返回,只是还在对比时不合并,丢弃对比结果后开始新的刷新
+     */
+    private void dispatchRefresh() {
+        if (mRequestTracker.isRefreshing() && !mRefreshDiffer.isPending()) {
+            return;
+        }
+        mRefreshDiffer.cancel();
+        long token = mRequestTracker.startRefresh();
+        isLoadingPrevious = false;
+        mRetryPolicy.reset();
+        clearLoadMoreError();
+        if (isLoadingMore) {
+            isLoadingMore = false;
+            mThresholdEstimator.onLoadMoreCancel();
+            if (mLoadMore != null) {
+                mLoadMore.onComplete();
+            }
+        }
+        if (mLoadingListener != null) {
             mLoadingListener.onRefresh();
         }
+        if (mRequestLoadingListener != null) {
+            mRequestLoadingListener.onRefresh(token);
+        }
+    }
+
+    private boolean hasLoadingListener() {
+        return mLoadingListener != null || mRequestLoadingListener != null;
     }
 
     /**
@@ -330,6 +799,88 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         mArrowView.setChildView(view);
     }
 
+    /**
+     * 列表中的位置对应的真实adapter中的位置,自定义分割线时可以用来过滤头部尾部等
+     *
+     * @param adapterPosition 列表中的位置
+     * @return 不是真实数据时返回NO_POSITION
+     */
+    public int getRealItemPosition(int adapterPosition) {
+        if (mWrapAdapter == null) {
+            return NO_POSITION;
+        }
+        int position = mWrapAdapter.getSections().getItemPosition(adapterPosition);
+        return position < 0 ? NO_POSITION : position;
+    }
+
+    /**
+     * 设置下拉模式,PULL_MODE_TRANSLATE时下拉过程中只平移子控件不重新布局,
+     * 头部需要绘制在自身范围之外,所以会关闭clipChildren
+     *
+     * @param pullMode {@link PullToRefreshHeaderHelper#PULL_MODE_LAYOUT} 或者 {@link PullToRefreshHeaderHelper#PULL_MODE_TRANSLATE}
+     */
+    public void setPullMode(int pullMode) {
+        mPullMode = pullMode;
+        if (isRefreshHeaderPinned)
+            return;
+        mArrowView.setPullMode(pullMode);
+        setClipChildren(pullMode != PullToRefreshHeaderHelper.PULL_MODE_TRANSLATE);
+    }
+
+    /**
+     * 下拉头部是否悬浮在列表之上,而不是作为adapter中的第一行.
+     * 悬浮时真实adapter的位置不再偏移,切换刷新模式也不会改变列表数量,下拉时固定使用PULL_MODE_TRANSLATE.
+     * 需要在setAdapter之前调用
+     *
+     * @param pinned
+     */
+    public void setRefreshHeaderPinned(boolean pinned) {
+        if (mWrapAdapter != null) {
+            throw new IllegalStateException("setRefreshHeaderPinned must be called before setAdapter");
+        }
+        if (isRefreshHeaderPinned == pinned)
+            return;
+        isRefreshHeaderPinned = pinned;
+        if (pinned) {
+            mArrowView.setPullMode(PullToRefreshHeaderHelper.PULL_MODE_TRANSLATE);
+            setClipChildren(true);
+            getOverlay().add(mArrowView);
+            requestLayout();
+        } else {
+            getOverlay().remove(mArrowView);
+            mArrowView.setTranslationY(0);
+            setPadding(getPaddingLeft(), getPaddingTop() - mPinnedPaddingTop, getPaddingRight(), getPaddingBottom());
+            mPinnedPaddingTop = 0;
+            setPullMode(mPullMode);
+        }
+    }
+
+    /**
+     * 悬浮的下拉头部不参与列表的布局,需要自己测量,底部对齐内容的顶部,通过平移展示
+     */
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (isRefreshHeaderPinned) {
+            int width = getWidth() - getPaddingLeft() - getPaddingRight();
+            int height = mArrowView.mMeasuredHeight;
+            mArrowView.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+            int top = getPaddingTop() - mPinnedPaddingTop - height;
+            mArrowView.layout(getPaddingLeft(), top, getPaddingLeft() + width, top + height);
+            mArrowView.setTranslationY(mArrowView.getVisibleHeight());
+        }
+    }
+
+    /**
+     * 设置下拉头部回弹一个头部高度所用的时长
+     *
+     * @param settleDuration 毫秒
+     */
+    public void setRefreshSettleDuration(int settleDuration) {
+        mArrowView.setSettleDuration(settleDuration);
+    }
+
     /**
      * 对除加载数据外的内容进行重置
      */
@@ -343,6 +894,9 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * 加载更多完成之后要调用
      */
     public void loadMoreComplete() {
+        mRequestTracker.clearLoadMore();
+        mRetryPolicy.reset();
+        mThresholdEstimator.onLoadMoreComplete(SystemClock.uptimeMillis());
         isLoadingMore = false;
         if (mLoadMore == null)
             return;
@@ -353,10 +907,144 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * 刷新之后的要调用的
      */
     public void refreshComplete() {
+        mRequestTracker.clearRefresh();
         mArrowView.onRefreshComplete();
         setNoMore(false);
     }
 
+    /**
+     * 带token的刷新完成,token过期时不做任何处理
+     *
+     * @param token onRefresh(long)中的token
+     * @return token是否有效
+     */
+    public boolean refreshComplete(long token) {
+        if (!mRequestTracker.completeRefresh(token)) {
+            return false;
+        }
+        refreshComplete();
+        return true;
+    }
+
+    /**
+     * 带token的加载更多完成,token过期(比如加载期间开始了刷新)时不做任何处理
+     *
+     * @param token onLoadMore(long)中的token
+     * @return token是否有效
+     */
+    public boolean loadMoreComplete(long token) {
+        if (!mRequestTracker.completeLoadMore(token)) {
+            return false;
+        }
+        loadMoreComplete();
+        return true;
+    }
+
+    /**
+     * 加载更多失败之后调用,按照重试策略延迟之后自动重试,超过重试次数之后需要点击重试或者调用retryLoadMore,
+     * 重试之前滑动不会再触发加载更多.加载更多布局实现了ILoadMoreErrorState时展示失败状态并支持点击重试
+     */
+    public void loadMoreError() {
+        mRequestTracker.clearLoadMore();
+        mThresholdEstimator.onLoadMoreCancel();
+        isLoadingMore = false;
+        isLoadMoreError = true;
+        mHandler.removeCallbacks(mRetryRunnable);
+        long delay = mRetryPolicy.onFailure();
+        if (delay >= 0) {
+            mHandler.postDelayed(mRetryRunnable, delay);
+        }
+        if (mLoadMore == null)
+            return;
+        if (mLoadMore instanceof ILoadMoreErrorState) {
+            ((ILoadMoreErrorState) mLoadMore).onError();
+        } else {
+            mLoadMore.onComplete();
+        }
+    }
+
+    /**
+     * 带token的加载更多失败,token过期时不做任何处理
+     *
+     * @param token onLoadMore(long)中的token
+     * @return token是否有效
+     */
+    public boolean loadMoreError(long token) {
+        if (!mRequestTracker.completeLoadMore(token)) {
+            return false;
+        }
+        loadMoreError();
+        return true;
+    }
+
+    /**
+     * 立即重试失败的加载更多
+     */
+    public void retryLoadMore() {
+        if (!isLoadMoreError)
+            return;
+        clearLoadMoreError();
+        if (isLoadMoreEnable()) {
+            startLoadMore();
+        }
+    }
+
+    /**
+     * 设置加载更多失败后的自动重试策略,延迟为baseDelay * 2^(失败次数-1),不超过maxDelay,并加上随机抖动
+     *
+     * @param maxRetries 连续失败多少次之后不再自动重试,0表示只能点击重试
+     * @param baseDelay  第一次重试的延迟,毫秒
+     * @param maxDelay   最大延迟,毫秒
+     */
+    public void setLoadMoreRetryPolicy(int maxRetries, long baseDelay, long maxDelay) {
+        mRetryPolicy.setPolicy(maxRetries, baseDelay, maxDelay);
+    }
+
+    private void clearLoadMoreError() {
+        isLoadMoreError = false;
+        mHandler.removeCallbacks(mRetryRunnable);
+    }
+
+    /**
+     * 请求是否还有效,过期请求的数据不需要再设置给adapter
+     *
+     * @param token
+     * @return
+     */
+    public boolean isRequestValid(long token) {
+        return mRequestTracker.isValid(token);
+    }
+
+    /**
+     * 刷新之后调用,在后台线程对比新旧数据,完成后在主线程通过applier设置新数据,
+     * 只对变化的条目进行局部刷新,然后结束调用时正在进行的刷新.
+     * 对比完成前再次调用或者开始了新的刷新时,之前的结果会被丢弃;对比期间不要修改adapter中的数据
+     *
+     * @param oldList    adapter当前使用的数据
+     * @param newList    刷新得到的数据
+     * @param comparator 新旧数据的比较方式,在后台线程调用
+     * @param applier    把新数据设置给adapter,不需要调用notify方法
+     */
+    public <T> void refreshComplete(@NonNull List<T> oldList, @NonNull List<T> newList,
+                                    @NonNull IItemComparator<T> comparator, @NonNull IDataApplier<T> applier) {
+        if (mWrapAdapter == null) {
+            applier.onApplyData(newList);
+            refreshComplete();
+            return;
+        }
+        final long token = mRequestTracker.getRefreshToken();
+        mRefreshDiffer.submit(mWrapAdapter.getRealAdapter(), oldList, newList, comparator, applier, new RefreshDiffer.OnAppliedListener() {
+            @Override
+            public void onApplied() {
+                if (token == RequestTracker.NO_TOKEN) {
+                    refreshComplete();
+                } else {
+                    refreshComplete(token);
+                }
+            }
+        }, mBackgroundExecutor);
+    }
+
     /**
      * 设置滑动模式
      *
@@ -364,6 +1052,50 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      */
     public void setRefreshMode(@FreshMode int mode) {
         mCurrentMode = mode;
+        invalidateSections();
+    }
+
+    /**
+     * 头部或者尾部中的第index个被插入或者移除
+     *
+     * @param section  SECTION_HEADER或者SECTION_FOOTER
+     * @param index    分段内的位置
+     * @param inserted 是否是插入
+     */
+    private void dispatchDecorationChanged(int section, int index, boolean inserted) {
+        if (mWrapAdapter == null) {
+            return;
+        }
+        SectionTable oldSections = mWrapAdapter.getSections();
+        mWrapAdapter.invalidateSections();
+        SectionTable newSections = mWrapAdapter.getSections();
+        SectionUpdateDispatcher dispatcher = mWrapAdapter.getUpdateDispatcher();
+        boolean dispatched;
+        if (oldSections.getLength(section) == 0 && newSections.getLength(section) == 0) {
+            // 空布局时没有展示该分段
+            dispatched = dispatcher.dispatchSectionChanged(oldSections, newSections);
+        } else if (inserted) {
+            dispatched = dispatcher.dispatchInserted(oldSections, newSections, section, index, 1);
+        } else {
+            dispatched = dispatcher.dispatchRemoved(oldSections, newSections, section, index, 1);
+        }
+        if (!dispatched) {
+            mWrapAdapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * 重建WarpAdapter的分段表,并把装饰布局数量的变化精确的通知出去
+     */
+    private void invalidateSections() {
+        if (mWrapAdapter == null) {
+            return;
+        }
+        SectionTable oldSections = mWrapAdapter.getSections();
+        mWrapAdapter.invalidateSections();
+        if (!mWrapAdapter.getUpdateDispatcher().dispatchSectionChanged(oldSections, mWrapAdapter.getSections())) {
+            mWrapAdapter.notifyDataSetChanged();
+        }
     }
 
     /**
@@ -372,7 +1104,11 @@ public class PullToRefreshRecyclerView extends RecyclerView {
      * @param noMore
      */
     public void setNoMore(boolean noMore) {
+        mRequestTracker.clearLoadMore();
+        mRetryPolicy.reset();
+        clearLoadMoreError();
         isNoMore = noMore;
+        mThresholdEstimator.onLoadMoreComplete(SystemClock.uptimeMillis());
         isLoadingMore = false;
         if (mLoadMore == null)
             return;
@@ -382,26 +1118,184 @@ public class PullToRefreshRecyclerView extends RecyclerView {
             mLoadMore.onComplete();
     }
 
-
+
+    /**
+     * 将现有的Adapter进行包装
+     *
+     * @param adapter
+     */
+    @Override
+    public void setAdapter(Adapter adapter) {
+        if (mWrapAdapter != null) {
+            mWrapAdapter.getRealAdapter().unregisterAdapterDataObserver(mDataObserver);
+        }
+        mPreInflater.invalidate();
+        mRefreshDiffer.cancel();
+        mWrapAdapter = new WarpAdapter(adapter);
+        super.setAdapter(mWrapAdapter);
+        adapter.registerAdapterDataObserver(mDataObserver);
+        mDataObserver.onChanged();
+    }
+
+    @Override
+    public void addItemDecoration(ItemDecoration decor) {
+        super.addItemDecoration(decor);
+    }
+
+    /**
+     * 在设置LayoutManager的时候选择一次查找可见位置的方式
+     * GridLayoutManager会安装让装饰布局占满一行的SpanSizeLookup,自定义的SpanSizeLookup需要在这之前设置
+     * 注意:xml中设置LayoutManager时会在构造方法中调用
+     *
+     * @param layout
+     */
+    @Override
+    public void setLayoutManager(LayoutManager layout) {
+        super.setLayoutManager(layout);
+        mPositionFinder = VisiblePositionFinders.create(layout);
+        if (layout instanceof GridLayoutManager) {
+            DecorationSpanSizeLookup.install(this, (GridLayoutManager) layout);
+        }
+        if (isRecycledViewPoolShared && layout instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layout).setRecycleChildrenOnDetach(true);
+        }
+    }
+
+    /**
+     * 设置多个列表共用的缓存池,推荐使用{@link SharedRecycledViewPool}
+     * 装饰布局包装的是每个列表自己的View,不会进入共用的缓存池;
+     * 同时LinearLayoutManager在列表离开窗口时会回收子View,切换页面时不需要重新创建
+     *
+     * @param pool
+     */
+    @Override
+    public void setRecycledViewPool(RecycledViewPool pool) {
+        super.setRecycledViewPool(pool);
+        isRecycledViewPoolShared = pool != null;
+        if (pool == null)
+            return;
+        if (!(pool instanceof SharedRecycledViewPool)) {
+            pool.setMaxRecycledViews(VIEW_TYPE_ARROW, 0);
+            pool.setMaxRecycledViews(VIEW_TYPE_LOADING, 0);
+            pool.setMaxRecycledViews(VIEW_TYPE_EMPTY, 0);
+            for (int i = 0; i < mHeaderViews.size(); i++) {
+                pool.setMaxRecycledViews(mHeaderViews.keyAt(i), 0);
+            }
+            for (int i = 0; i < mFooterViews.size(); i++) {
+                pool.setMaxRecycledViews(mFooterViews.keyAt(i), 0);
+            }
+        }
+        LayoutManager layout = getLayoutManager();
+        if (layout instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layout).setRecycleChildrenOnDetach(true);
+        }
+    }
+
+    /**
+     * 设置后台任务使用的线程池,默认为AsyncTask.THREAD_POOL_EXECUTOR
+     *
+     * @param executor
+     */
+    public void setBackgroundExecutor(@NonNull Executor executor) {
+        mBackgroundExecutor = executor;
+    }
+
+    /**
+     * 在后台线程提前创建ViewHolder放入缓存池,首屏布局时只需要绑定数据,需要在setAdapter之后调用.
+     * adapter的onCreateViewHolder会在后台线程执行,只能创建布局,不能访问主线程的状态;
+     * parent的context是包装过的列表context,里面的LayoutInflater是单独克隆的.
+     * 不会修改缓存池的最大数量,超出的部分不会放入缓存池,数量较大时需要先调用setMaxRecycledViews
+     *
+     * @param counts key为真实adapter的type,value为需要创建的数量
+     */
+    public void preInflateViewHolders(@NonNull SparseIntArray counts) {
+        if (mWrapAdapter == null) {
+            throw new IllegalStateException("preInflateViewHolders must be called after setAdapter");
+        }
+        mPreInflater.preInflate(getContext(), mWrapAdapter.getRealAdapter(), getRecycledViewPool(), counts, mBackgroundExecutor);
+    }
+
+    /**
+     * 设置绑定前的准备阶段,滑动方向上即将出现的条目会在后台线程准备,提前的条数为一屏的数量
+     *
+     * @param preparer 为空时关闭,设置后代替adapter的onBindViewHolder
+     */
+    public void setBindPreparer(@Nullable IBindPreparer preparer) {
+        setBindPreparer(preparer, 0);
+    }
+
+    /**
+     * 设置绑定前的准备阶段
+     *
+     * @param preparer 为空时关闭,设置后代替adapter的onBindViewHolder
+     * @param window   滑动方向上提前准备的条数,小于等于0时为一屏的数量
+     */
+    public void setBindPreparer(@Nullable IBindPreparer preparer, int window) {
+        mBindPrepareStage.setPreparer(preparer, window);
+    }
+
+    /**
+     * 绑定发生在布局或者预取的过程中,这时不能通知adapter变化,回调延后到主线程的下一个消息执行.
+     * 执行时占位模式已经切换或者该位置已经加载完成就不再回调
+     *
+     * @param provider 绑定时的占位提供者
+     * @param position 真实adapter中的位置
+     */
+    private void dispatchPlaceholderBound(final IPlaceholderProvider provider, final int position) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (provider == mPlaceholderProvider && position < provider.getTotalCount() && !provider.isLoaded(position)) {
+                    provider.onPlaceholderBound(position);
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置占位模式,已知总数时列表数量始终为总数,未加载的位置显示占位布局,不再显示加载更多布局.
+     * 占位布局被绑定时通过onPlaceholderBound开始加载,加载完成后调用真实adapter的notifyItemRangeChanged原地替换.
+     * 占位布局可以放入共用的缓存池,共用缓存池的列表需要使用相同的占位布局
+     *
+     * @param provider 为空时关闭
+     */
+    public void setPlaceholderProvider(@Nullable IPlaceholderProvider provider) {
+        mPlaceholderProvider = provider;
+        if (mWrapAdapter != null) {
+            mWrapAdapter.invalidateSections();
+            mWrapAdapter.notifyDataSetChanged();
+        }
+    }
+
     /**
-     * 将现有的Adapter进行包装
+     * 是否为装饰布局使用的type
      *
-     * @param adapter
+     * @param viewType
+     * @return
      */
-    @Override
-    public void setAdapter(Adapter adapter) {
-        mWrapAdapter = new WarpAdapter(adapter);
-        super.setAdapter(mWrapAdapter);
-        adapter.registerAdapterDataObserver(mDataObserver);
-        mDataObserver.onChanged();
+    static boolean isDecoratorViewType(int viewType) {
+        return viewType >= VIEW_TYPE_DECORATOR_START && viewType < VIEW_TYPE_DECORATOR_END;
     }
 
-    @Override
-    public void addItemDecoration(ItemDecoration decor) {
-        super.addItemDecoration(decor);
+    /**
+     * 设置自定义LayoutManager的可见位置查找方式,为空时使用默认的方式
+     *
+     * @param finder
+     */
+    public void setVisiblePositionFinder(@Nullable IVisiblePositionFinder finder) {
+        mCustomPositionFinder = finder;
     }
 
 
+    /**
+     * 当前的分段表,没有设置adapter时为空表
+     *
+     * @return
+     */
+    SectionTable getSectionTable() {
+        return mWrapAdapter == null ? SectionTable.EMPTY : mWrapAdapter.getSections();
+    }
+
     /**
      * 为了解决ClassCastException
      * 因为对adapter进行了包装
@@ -416,69 +1310,276 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         return null;
     }
 
+    /**
+     * 把真实adapter的变化加上下拉和头部的偏移之后再通知WarpAdapter
+     */
     private class DataObserver extends RecyclerView.AdapterDataObserver {
         @Override
         public void onChanged() {
+            mBindPrepareStage.invalidate();
             if (mWrapAdapter != null) {
+                mWrapAdapter.invalidateSections();
                 mWrapAdapter.notifyDataSetChanged();
             }
         }
 
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
-            mWrapAdapter.notifyItemRangeInserted(positionStart, itemCount);
+            mBindPrepareStage.onItemRangeInserted(positionStart, itemCount);
+            SectionTable oldSections = mWrapAdapter.getSections();
+            mWrapAdapter.invalidateSections();
+            if (!mWrapAdapter.getUpdateDispatcher().dispatchInserted(oldSections, mWrapAdapter.getSections(), SectionTable.SECTION_ITEM, positionStart, itemCount)) {
+                mWrapAdapter.notifyDataSetChanged();
+            }
         }
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount) {
-            mWrapAdapter.notifyItemRangeChanged(positionStart, itemCount);
+            onItemRangeChanged(positionStart, itemCount, null);
         }
 
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
-            mWrapAdapter.notifyItemRangeChanged(positionStart, itemCount, payload);
+            mBindPrepareStage.onItemRangeChanged(positionStart, itemCount);
+            SectionTable oldSections = mWrapAdapter.getSections();
+            mWrapAdapter.invalidateSections();
+            if (!mWrapAdapter.getUpdateDispatcher().dispatchChanged(oldSections, mWrapAdapter.getSections(), SectionTable.SECTION_ITEM, positionStart, itemCount, payload)) {
+                mWrapAdapter.notifyDataSetChanged();
+            }
         }
 
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
-            mWrapAdapter.notifyItemRangeRemoved(positionStart, itemCount);
+            mBindPrepareStage.onItemRangeRemoved(positionStart, itemCount);
+            SectionTable oldSections = mWrapAdapter.getSections();
+            mWrapAdapter.invalidateSections();
+            if (!mWrapAdapter.getUpdateDispatcher().dispatchRemoved(oldSections, mWrapAdapter.getSections(), SectionTable.SECTION_ITEM, positionStart, itemCount)) {
+                mWrapAdapter.notifyDataSetChanged();
+            }
         }
 
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-            mWrapAdapter.notifyItemMoved(fromPosition, toPosition);
+            mBindPrepareStage.onItemRangeMoved(fromPosition, toPosition, itemCount);
+            SectionTable oldSections = mWrapAdapter.getSections();
+            mWrapAdapter.invalidateSections();
+            if (!mWrapAdapter.getUpdateDispatcher().dispatchMoved(oldSections, mWrapAdapter.getSections(), SectionTable.SECTION_ITEM, fromPosition, toPosition, itemCount)) {
+                mWrapAdapter.notifyDataSetChanged();
+            }
         }
     }
 
     @Override
     public void onScrollStateChanged(int state) {
         super.onScrollStateChanged(state);
-        if (state == RecyclerView.SCROLL_STATE_IDLE && isCanLoadMore() && mLoadingListener != null && !isLoadingMore && !isNoMore) {
+        if (state == RecyclerView.SCROLL_STATE_IDLE) {
+            mThresholdEstimator.onScrollIdle();
+            checkLoadPrevious();
+        }
+        if (state == RecyclerView.SCROLL_STATE_IDLE && isLoadMoreEnable()) {
             LayoutManager layoutManager = getLayoutManager();
-            int lastVisibleItemPosition;
-            if (layoutManager instanceof GridLayoutManager) {
-                lastVisibleItemPosition = ((GridLayoutManager) layoutManager).findLastVisibleItemPosition();
-            } else if (layoutManager instanceof StaggeredGridLayoutManager) {
-                int[] into = new int[((StaggeredGridLayoutManager) layoutManager).getSpanCount()];
-                ((StaggeredGridLayoutManager) layoutManager).findLastVisibleItemPositions(into);
-                lastVisibleItemPosition = findMax(into);
-            } else {
-                lastVisibleItemPosition = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+            int lastVisibleItemPosition = findLastVisibleItemPosition(layoutManager);
+            if (layoutManager != null && layoutManager.getChildCount() > 0 && lastVisibleItemPosition >= layoutManager.getItemCount() - 1 && layoutManager.getItemCount() > layoutManager.getChildCount()) {
+                startLoadMore();
             }
-            if (layoutManager.getChildCount() > 0 && lastVisibleItemPosition >= layoutManager.getItemCount() - 1 && layoutManager.getItemCount() > layoutManager.getChildCount()) {
-                isLoadingMore = true;
-                if (mLoadMore != null) {
-                    mLoadMore.onLoading();
-                }
-                if (mLoadingListener != null) {
-                    mLoadingListener.onLoadMore();
-                }
+        }
+    }
+
+    /**
+     * 滑动过程中距离底部小于预加载距离时就开始加载更多,不用等到滑动停止
+     *
+     * @param dx
+     * @param dy
+     */
+    @Override
+    public void onScrolled(int dx, int dy) {
+        super.onScrolled(dx, dy);
+        mThresholdEstimator.onScrolled(Math.abs(dy) >= Math.abs(dx) ? dy : dx, SystemClock.uptimeMillis());
+        prepareBind(dx < 0 || dy < 0);
+        if (dy < 0 || dx < 0) {
+            checkLoadPrevious();
+            return;
+        }
+        if ((dy <= 0 && dx <= 0) || !isLoadMoreEnable()) {
+            return;
+        }
+        LayoutManager layoutManager = getLayoutManager();
+        int childCount = layoutManager.getChildCount();
+        int prefetchDistance = getPrefetchDistance(layoutManager);
+        if (prefetchDistance <= 0 || childCount == 0 || layoutManager.getItemCount() <= childCount) {
+            return;
+        }
+        // 从最后一条真实数据开始计算,尾布局和加载更多布局不算在内
+        SectionTable sections = getSectionTable();
+        int itemCount = sections.getLength(SectionTable.SECTION_ITEM);
+        int lastVisibleItemPosition = findLastVisibleItemPosition(layoutManager);
+        if (itemCount == 0 || lastVisibleItemPosition == NO_POSITION) {
+            return;
+        }
+        int lastItemPosition = sections.getStart(SectionTable.SECTION_ITEM) + itemCount - 1;
+        if (lastItemPosition - lastVisibleItemPosition <= prefetchDistance) {
+            startLoadMore();
+        }
+    }
 
+    /**
+     * 提前加载的条数,取设置的条数,屏数和自动估算中的最大值
+     *
+     * @param layoutManager
+     * @return
+     */
+    private int getPrefetchDistance(LayoutManager layoutManager) {
+        int childCount = layoutManager.getChildCount();
+        int prefetchDistance = Math.max(mPrefetchItemCount, (int) (mPrefetchScreenCount * childCount));
+        if (isAdaptiveLoadMore && childCount > 0) {
+            int extent = layoutManager.canScrollHorizontally() ? getWidth() : getHeight();
+            prefetchDistance = Math.max(prefetchDistance, mThresholdEstimator.computeThreshold((float) extent / childCount));
+        }
+        return prefetchDistance;
+    }
 
-            }
+    /**
+     * 加载上一页提前的条数,和加载更多使用相同的距离,没有设置时为一屏的数量
+     *
+     * @param layoutManager
+     * @return
+     */
+    private int getLoadPreviousDistance(LayoutManager layoutManager) {
+        int prefetchDistance = getPrefetchDistance(layoutManager);
+        return prefetchDistance > 0 ? prefetchDistance : layoutManager.getChildCount();
+    }
+
+    /**
+     * 可见范围对应的真实adapter中的位置,落在头部时小于0,落在尾部时不小于数据的数量
+     *
+     * @return [第一个可见的位置, 最后一个可见的位置],没有可见的item时返回null
+     */
+    int[] getVisibleItemRange() {
+        LayoutManager layoutManager = getLayoutManager();
+        int first = findFirstVisibleItemPosition(layoutManager);
+        int last = findLastVisibleItemPosition(layoutManager);
+        if (first == NO_POSITION || last == NO_POSITION || mWrapAdapter == null) {
+            return null;
+        }
+        int start = mWrapAdapter.getSections().getStart(SectionTable.SECTION_ITEM);
+        return new int[]{first - start, last - start};
+    }
+
+    /**
+     * 距离最后一条数据多少条时触发加载更多
+     */
+    int getLoadMoreDistance() {
+        LayoutManager layoutManager = getLayoutManager();
+        return layoutManager == null ? 0 : getPrefetchDistance(layoutManager);
+    }
+
+    /**
+     * 距离第一条数据多少条时触发加载上一页
+     */
+    int getLoadPreviousDistance() {
+        LayoutManager layoutManager = getLayoutManager();
+        return layoutManager == null ? 0 : getLoadPreviousDistance(layoutManager);
+    }
+
+    /**
+     * 第一个可见的数据距离顶部小于提前加载的条数时加载上一页
+     */
+    private void checkLoadPrevious() {
+        if (mLoadPreviousListener == null || !isHasPrevious || isLoadingPrevious
+                || mWrapAdapter == null || mRequestTracker.isRefreshing()) {
+            return;
+        }
+        LayoutManager layoutManager = getLayoutManager();
+        int firstVisibleItemPosition = findFirstVisibleItemPosition(layoutManager);
+        if (firstVisibleItemPosition == NO_POSITION) {
+            return;
+        }
+        int firstItem = firstVisibleItemPosition - mWrapAdapter.getSections().getStart(SectionTable.SECTION_ITEM);
+        if (firstItem <= getLoadPreviousDistance(layoutManager)) {
+            isLoadingPrevious = true;
+            mLoadPreviousListener.onLoadPrevious(mRequestTracker.startLoadPrevious());
+        }
+    }
+
+    /**
+     * 当前是否可以触发加载更多
+     *
+     * @return
+     */
+    private boolean isLoadMoreEnable() {
+        return isCanLoadMore() && hasLoadingListener() && !isLoadingMore && !isNoMore && !isLoadMoreError
+                && !mRequestTracker.isRefreshing() && mPlaceholderProvider == null;
+    }
+
+    private void startLoadMore() {
+        isLoadingMore = true;
+        mThresholdEstimator.onLoadMoreStart(SystemClock.uptimeMillis());
+        if (mLoadMore != null) {
+            mLoadMore.onLoading();
+        }
+        long token = mRequestTracker.startLoadMore();
+        if (mLoadingListener != null) {
+            mLoadingListener.onLoadMore();
+        }
+        if (mRequestLoadingListener != null) {
+            mRequestLoadingListener.onLoadMore(token);
+        }
+    }
+
+    /**
+     * 在滑动方向上准备即将出现的条目
+     *
+     * @param backward 是否向上(向左)滑动
+     */
+    private void prepareBind(boolean backward) {
+        if (!mBindPrepareStage.isEnabled() || mWrapAdapter == null) {
+            return;
+        }
+        SectionTable sections = mWrapAdapter.getSections();
+        int itemCount = sections.getLength(SectionTable.SECTION_ITEM);
+        LayoutManager layoutManager = getLayoutManager();
+        int first = findFirstVisibleItemPosition(layoutManager);
+        int last = findLastVisibleItemPosition(layoutManager);
+        if (itemCount == 0 || first == NO_POSITION || last == NO_POSITION) {
+            return;
+        }
+        int itemStart = sections.getStart(SectionTable.SECTION_ITEM);
+        int firstItem = first - itemStart;
+        int lastItem = last - itemStart;
+        int window = mBindPrepareStage.getWindow() > 0 ? mBindPrepareStage.getWindow() : last - first + 1;
+        int from = backward ? firstItem - window : lastItem + 1;
+        int to = backward ? firstItem - 1 : lastItem + window;
+        mBindPrepareStage.prepare(Math.max(0, from), Math.min(itemCount - 1, to),
+                firstItem - window, lastItem + window, mPlaceholderProvider, mBackgroundExecutor);
+    }
+
+    /**
+     * 第一个可见的位置,没有LayoutManager或者没有可见item时返回NO_POSITION
+     *
+     * @param layoutManager
+     * @return
+     */
+    private int findFirstVisibleItemPosition(LayoutManager layoutManager) {
+        IVisiblePositionFinder finder = mCustomPositionFinder != null ? mCustomPositionFinder : mPositionFinder;
+        if (finder == null || layoutManager == null) {
+            return NO_POSITION;
         }
+        return finder.findFirstVisibleItemPosition(layoutManager);
     }
 
+    /**
+     * 最后一个可见的位置,没有LayoutManager或者没有可见item时返回NO_POSITION
+     *
+     * @param layoutManager
+     * @return
+     */
+    private int findLastVisibleItemPosition(LayoutManager layoutManager) {
+        IVisiblePositionFinder finder = mCustomPositionFinder != null ? mCustomPositionFinder : mPositionFinder;
+        if (finder == null || layoutManager == null) {
+            return NO_POSITION;
+        }
+        return finder.findLastVisibleItemPosition(layoutManager);
+    }
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
@@ -503,9 +1604,7 @@ public class PullToRefreshRecyclerView extends RecyclerView {
                 mLastY = -1; // reset
                 if (isOnTop() && isCanRefresh()) {
                     if (mArrowView.releaseAction()) {
-                        if (mLoadingListener != null) {
-                            mLoadingListener.onRefresh();
-                        }
+                        dispatchRefresh();
                     }
 
                 }
@@ -514,7 +1613,18 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         return super.onTouchEvent(ev);
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // 离开窗口后不再自动重试,可以点击重试
+        mHandler.removeCallbacks(mRetryRunnable);
+        mArrowView.onHostDetachedFromWindow();
+    }
+
     private boolean isOnTop() {
+        if (isRefreshHeaderPinned) {
+            return !canScrollVertically(-1);
+        }
         if (mArrowView != null && mArrowView.getParent() != null) {
             return true;
         } else {
@@ -531,15 +1641,93 @@ public class PullToRefreshRecyclerView extends RecyclerView {
         mLoadingListener = listener;
     }
 
+    /**
+     * 设置带token的监听
+     *
+     * @param listener
+     */
+    public void setRequestLoadingListener(RequestLoadingListener listener) {
+        mRequestLoadingListener = listener;
+    }
+
+    /**
+     * 设置加载上一页的监听,需要通过setHasPrevious(true)开启
+     *
+     * @param listener
+     */
+    public void setLoadPreviousListener(LoadPreviousListener listener) {
+        mLoadPreviousListener = listener;
+    }
+
+    /**
+     * 顶部之前是否还有数据,有数据时向上滑动到接近顶部会加载上一页
+     *
+     * @param hasPrevious
+     */
+    public void setHasPrevious(boolean hasPrevious) {
+        isHasPrevious = hasPrevious;
+    }
+
+    /**
+     * 加载上一页完成之后调用
+     */
+    public void loadPreviousComplete() {
+        mRequestTracker.clearLoadPrevious();
+        isLoadingPrevious = false;
+    }
 
-    private int findMax(int[] lastPositions) {
-        int max = lastPositions[0];
-        for (int value : lastPositions) {
-            if (value > max) {
-                max = value;
+    /**
+     * 在真实adapter的顶部插入了itemCount条数据,加载上一页时用来代替notifyItemRangeInserted(0, itemCount),
+     * 插入之后第一个可见的数据保持在原来的位置.
+     * 第一个可见的是下拉头部或者头布局时RecyclerView会以它为锚点,插入的数据会把可见的内容往下推
+     *
+     * @param itemCount 插入的数量
+     */
+    public void notifyPreviousItemsInserted(int itemCount) {
+        Adapter adapter = getAdapter();
+        if (adapter == null || itemCount <= 0)
+            return;
+        LayoutManager layoutManager = getLayoutManager();
+        View anchor = null;
+        int anchorItem = NO_POSITION;
+        int childCount = layoutManager == null ? 0 : layoutManager.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = layoutManager.getChildAt(i);
+            int itemPosition = getRealItemPosition(getChildAdapterPosition(child));
+            if (itemPosition != NO_POSITION && (anchorItem == NO_POSITION || itemPosition < anchorItem)) {
+                anchor = child;
+                anchorItem = itemPosition;
             }
         }
-        return max;
+        int offset = 0;
+        if (anchor != null) {
+            offset = layoutManager.canScrollHorizontally()
+                    ? layoutManager.getDecoratedLeft(anchor) - getPaddingLeft()
+                    : layoutManager.getDecoratedTop(anchor) - getPaddingTop();
+        }
+        adapter.notifyItemRangeInserted(0, itemCount);
+        if (anchor == null)
+            return;
+        int position = getSectionTable().getStart(SectionTable.SECTION_ITEM) + anchorItem + itemCount;
+        if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            ((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        }
+    }
+
+    /**
+     * 带token的加载上一页完成,token过期时不做任何处理
+     *
+     * @param token onLoadPrevious(long)中的token
+     * @return token是否有效
+     */
+    public boolean loadPreviousComplete(long token) {
+        if (!mRequestTracker.completeLoadPrevious(token)) {
+            return false;
+        }
+        loadPreviousComplete();
+        return true;
     }
 
 
@@ -567,23 +1755,82 @@ public class PullToRefreshRecyclerView extends RecyclerView {
     private class WarpAdapter extends RecyclerView.Adapter<ViewHolder> {
 
         private Adapter adapter;
+        /**
+         * 分段表,只在数据或者装饰布局变化的时候重建
+         */
+        private SectionTable mSections = SectionTable.EMPTY;
+        /**
+         * 把分段内的变化通知给RecyclerView
+         */
+        private final SectionUpdateDispatcher mUpdateDispatcher = new SectionUpdateDispatcher(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notifyItemRangeChanged(position, count, payload);
+            }
+        });
 
         public WarpAdapter(Adapter adapter) {
             this.adapter = adapter;
+            setHasStableIds(adapter.hasStableIds());
+            invalidateSections();
+        }
+
+        /**
+         * 重建分段表,数据变化或者头部,尾部,空布局,模式发生变化时调用
+         */
+        void invalidateSections() {
+            int itemCount = getRealItemCount();
+            int headerCount = getHeaderViewCount();
+            int footerCount = getFooterViewCount();
+            if (getEmptyViewCount() == 1) {
+                mSections = new SectionTable(getArrowViewCount(),
+                        mShowEmptyWithHeader ? headerCount : 0,
+                        1,
+                        0,
+                        mShowEmptyWithFooter ? footerCount : 0,
+                        0);
+            } else {
+                mSections = new SectionTable(getArrowViewCount(), headerCount, 0, itemCount, footerCount, getLoadingViewCount());
+            }
+        }
+
+        SectionTable getSections() {
+            return mSections;
+        }
+
+        SectionUpdateDispatcher getUpdateDispatcher() {
+            return mUpdateDispatcher;
         }
 
         @Override
         public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
             if (viewType == VIEW_TYPE_ARROW) {
                 return new SimpleViewHolder(mArrowView);
-            } else if (viewType == VIEW_TYPE_HEADER) {
-                return new SimpleViewHolder(mHeaderContainer);
-            } else if (viewType == VIEW_TYPE_FOOTER) {
-                return new SimpleViewHolder(mFooterContainer);
+            } else if (mHeaderViews.get(viewType) != null) {
+                return new SimpleViewHolder(mHeaderViews.get(viewType));
+            } else if (mFooterViews.get(viewType) != null) {
+                return new SimpleViewHolder(mFooterViews.get(viewType));
             } else if (viewType == VIEW_TYPE_LOADING) {
                 return new SimpleViewHolder(mLoadMore.getLoadMoreView());
             } else if (viewType == VIEW_TYPE_EMPTY) {
                 return new SimpleViewHolder(mEmptyContainer);
+            } else if (viewType == VIEW_TYPE_PLACEHOLDER) {
+                return new SimpleViewHolder(mPlaceholderProvider.onCreatePlaceholderView(parent));
             } else {
                 return adapter.onCreateViewHolder(parent, viewType);
             }
@@ -592,28 +1839,36 @@ public class PullToRefreshRecyclerView extends RecyclerView {
 
         @Override
         public void onBindViewHolder(ViewHolder holder, int position) {
-            if (position < getArrowViewCount() + getHeaderViewCount() + getEmptyViewCount()) {
+            onBindViewHolder(holder, position, Collections.<Object>emptyList());
+        }
+
+        /**
+         * 把payloads带上矫正后的位置交给真实adapter,局部刷新时不再播放进入动画
+         */
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
+            int adjPosition = mSections.getItemPosition(position);
+            if (adjPosition < 0) {
                 return;
             }
-            int adjPosition = position - getHeaderViewCount() - getEmptyViewCount() - getArrowViewCount();
-            int adapterCount;
-            if (adapter != null) {
-                adapterCount = adapter.getItemCount();
-                if (adjPosition < adapterCount) {
-                    adapter.onBindViewHolder(holder, adjPosition);
-                }
+            if (holder.getItemViewType() == VIEW_TYPE_PLACEHOLDER) {
+                dispatchPlaceholderBound(mPlaceholderProvider, adjPosition);
+                return;
+            }
+            if (mBindPrepareStage.isEnabled()) {
+                mBindPrepareStage.bind(holder, adjPosition, payloads);
+            } else {
+                adapter.onBindViewHolder(holder, adjPosition, payloads);
+            }
+            if (!payloads.isEmpty()) {
+                return;
             }
             if (isCanStartLoadAnimation) {
                 if (!isOnlyFirstPlayAnima || adjPosition > mLastPosition) {
-                    BaseAnimation animation;
-                    if (mAnimation == null) {
-                        animation = new TranslateAnimation();
-                    } else {
-                        animation = mAnimation;
+                    // 快速滑动或者同时进行的动画太多时直接展示,不播放动画
+                    if (!isSkipLoadAnimation()) {
+                        EntranceAnimator.obtain(holder.itemView, getLoadAnimation(), mAnimationBudget).start(mLoadAnimationDuration, mInterpolator);
                     }
-                    Animator animators = animation.getAnimators(holder.itemView);
-                    animators.setInterpolator(mInterpolator);
-                    animators.setDuration(mLoadAnimationDuration).start();
                     mLastPosition = adjPosition;
                 }
             }
@@ -622,86 +1877,58 @@ public class PullToRefreshRecyclerView extends RecyclerView {
 
         @Override
         public int getItemCount() {
-            int count = adapter.getItemCount();
-            if (mArrowView != null && isCanRefresh()) {
-                count++;
-            }
-            if (getEmptyViewCount() == 1) {
-                count++;
-                if (mShowEmptyWithHeader && getHeaderViewCount() != 0) {
-                    count++;
-                }
-                if (mShowEmptyWithFooter && getFooterViewCount() != 0) {
-                    count++;
-                }
-            } else {
-                count += getHeaderViewCount() + getFooterViewCount() + getLoadingViewCount();
-            }
-            return count;
+            return mSections.getItemCount();
         }
 
         @Override
         public int getItemViewType(int position) {
-            if (getEmptyViewCount() == 1) {
-                boolean isHeader = mShowEmptyWithHeader && getHeaderViewCount() != 0;
-                boolean isArrow = getArrowViewCount() != 0;
-                switch (position) {
-                    case 0:
-                        if (isArrow) {
-                            return VIEW_TYPE_ARROW;
-                        } else if (isHeader) {
-                            return VIEW_TYPE_HEADER;
-                        } else {
-                            return VIEW_TYPE_EMPTY;
-                        }
-                    case 1:
-                        if (isHeader) {
-                            return VIEW_TYPE_HEADER;
-                        } else {
-                            return VIEW_TYPE_EMPTY;
-                        }
-                    case 2:
-                        if (isHeader) {
-                            return VIEW_TYPE_EMPTY;
-                        } else {
-                            return VIEW_TYPE_FOOTER;
-                        }
-                    case 3:
-                        return VIEW_TYPE_FOOTER;
-                    default:
-                        return VIEW_TYPE_EMPTY;
-                }
-            } else {
-                int adjPosition = position - getArrowViewCount() - getHeaderViewCount();
-                boolean isHeader = getHeaderViewCount() != 0;
-                boolean isArrow = getArrowViewCount() != 0;
-                if (position == 0) {
-                    if (isArrow) {
-                        return VIEW_TYPE_ARROW;
-                    } else if (isHeader) {
-                        return VIEW_TYPE_HEADER;
-                    }
-                } else if (position == 1) {
-                    if (isHeader) {
-                        return VIEW_TYPE_HEADER;
+            switch (mSections.getSection(position)) {
+                case SectionTable.SECTION_ARROW:
+                    return VIEW_TYPE_ARROW;
+                case SectionTable.SECTION_HEADER:
+                    return mHeaderTypes.get(position - mSections.getStart(SectionTable.SECTION_HEADER));
+                case SectionTable.SECTION_EMPTY:
+                    return VIEW_TYPE_EMPTY;
+                case SectionTable.SECTION_ITEM:
+                    int itemPosition = mSections.getItemPosition(position);
+                    if (isPlaceholder(itemPosition)) {
+                        return VIEW_TYPE_PLACEHOLDER;
                     }
-                } else if (isFooter(position)) {
-                    return VIEW_TYPE_FOOTER;
-                } else if (isLoadingMoreView(position)) {
+                    return adapter.getItemViewType(itemPosition);
+                case SectionTable.SECTION_FOOTER:
+                    return mFooterTypes.get(position - mSections.getStart(SectionTable.SECTION_FOOTER));
+                case SectionTable.SECTION_LOADING:
                     return VIEW_TYPE_LOADING;
-                } else {
-                    if (adapter != null) {
-                        int adapterCount = adapter.getItemCount();
-                        if (adjPosition < adapterCount) {
-                            return adapter.getItemViewType(adjPosition);
-                        }
-                    }
-                }
+                default:
+                    return -999;
             }
-            return -999;
         }
 
 
+        /**
+         * 真实数据使用真实adapter的id,装饰布局使用保留的id,保证不会冲突
+         */
+        @Override
+        public long getItemId(int position) {
+            int section = mSections.getSection(position);
+            if (section == SectionTable.SECTION_NONE) {
+                return NO_ID;
+            } else if (section == SectionTable.SECTION_ITEM) {
+                int itemPosition = mSections.getItemPosition(position);
+                if (isPlaceholder(itemPosition)) {
+                    // 由未加载的范围决定,前面插入数据之后不变
+                    return mPlaceholderProvider.getPlaceholderId(itemPosition);
+                }
+                return adapter.getItemId(itemPosition);
+            } else if (section == SectionTable.SECTION_HEADER) {
+                return mHeaderIds.get(position - mSections.getStart(SectionTable.SECTION_HEADER));
+            } else if (section == SectionTable.SECTION_FOOTER) {
+                return mFooterIds.get(position - mSections.getStart(SectionTable.SECTION_FOOTER));
+            } else {
+                return DECORATION_ID_BASE + getItemViewType(position);
+            }
+        }
+
         @Override
         public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
             adapter.onDetachedFromRecyclerView(recyclerView);
@@ -713,116 +1940,79 @@ public class PullToRefreshRecyclerView extends RecyclerView {
             ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
             if (lp != null
                     && lp instanceof StaggeredGridLayoutManager.LayoutParams
-                    && (isLoadingMoreView(holder.getLayoutPosition()) || isEmpty(holder.getLayoutPosition()) || isHeader(holder.getLayoutPosition()) || isArrow(holder.getLayoutPosition()) || isFooter(holder.getLayoutPosition()))) {
+                    && mSections.isDecoration(holder.getLayoutPosition())) {
                 StaggeredGridLayoutManager.LayoutParams p = (StaggeredGridLayoutManager.LayoutParams) lp;
                 p.setFullSpan(true);
             }
+            if (holder.getItemViewType() == VIEW_TYPE_PLACEHOLDER)
+                return;
             adapter.onViewAttachedToWindow(holder);
         }
 
         @Override
         public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+            EntranceAnimator.cancel(holder.itemView);
+            if (holder.getItemViewType() == VIEW_TYPE_PLACEHOLDER)
+                return;
             adapter.onViewDetachedFromWindow(holder);
         }
 
         @Override
         public void onViewRecycled(RecyclerView.ViewHolder holder) {
+            EntranceAnimator.cancel(holder.itemView);
+            if (holder.getItemViewType() == VIEW_TYPE_PLACEHOLDER)
+                return;
             adapter.onViewRecycled(holder);
         }
 
         @Override
         public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+            if (holder.getItemViewType() == VIEW_TYPE_PLACEHOLDER)
+                return false;
             return adapter.onFailedToRecycleView(holder);
         }
 
-        @Override
-        public void unregisterAdapterDataObserver(AdapterDataObserver observer) {
-            adapter.unregisterAdapterDataObserver(observer);
-        }
-
-        @Override
-        public void registerAdapterDataObserver(AdapterDataObserver observer) {
-            adapter.registerAdapterDataObserver(observer);
-        }
-
-
-        /**
-         * 判断是否为下拉View
-         *
-         * @param position
-         * @return
-         */
-        private boolean isArrow(int position) {
-            return position == 0 && getArrowViewCount() == 1;
-        }
-
-        /**
-         * 判断是否是LoadMoreView
-         *
-         * @param position
-         * @return
-         */
-        private boolean isLoadingMoreView(int position) {
-            return position == adapter.getItemCount() + getFooterViewCount() + getEmptyViewCount() + getHeaderViewCount() + getArrowViewCount();
-        }
-
         /**
-         * 判断是否为底部View
-         *
-         * @param position
-         * @return
+         * 数据的数量,占位模式下为总数
          */
-        private boolean isFooter(int position) {
-            return position >= getArrowViewCount() + getHeaderViewCount() + getEmptyViewCount() + adapter.getItemCount() && position < getItemCount() - 1;
-        }
-
-        private boolean isEmpty(int position) {
-            return position == 2 && getEmptyViewCount() == 1;
+        private int getRealItemCount() {
+            return mPlaceholderProvider != null ? mPlaceholderProvider.getTotalCount() : adapter.getItemCount();
         }
 
         /**
-         * 判断是否为头部View
-         *
-         * @param position
-         * @return
+         * 真实位置是否显示占位布局
          */
-        private boolean isHeader(int position) {
-            return position == 1 && getHeaderViewCount() == 1;
+        private boolean isPlaceholder(int itemPosition) {
+            return mPlaceholderProvider != null && !mPlaceholderProvider.isLoaded(itemPosition);
         }
 
         private int getArrowViewCount() {
-            if (mArrowView == null || !isCanRefresh()) {
+            if (mArrowView == null || !isCanRefresh() || isRefreshHeaderPinned) {
                 return 0;
             }
             return 1;
         }
 
         private int getHeaderViewCount() {
-            if (mHeaderContainer == null || mHeaderContainer.getChildCount() == 0) {
-                return 0;
-            }
-            return 1;
+            return mHeaderViews.size();
         }
 
         private int getFooterViewCount() {
-            if (mFooterContainer == null || mFooterContainer.getChildCount() == 0) {
-                return 0;
-            }
-            return 1;
+            return mFooterViews.size();
         }
 
         private int getEmptyViewCount() {
             if (mEmptyContainer == null || mEmptyContainer.getChildCount() == 0) {
                 return 0;
             }
-            if (adapter.getItemCount() != 0) {
+            if (getRealItemCount() != 0) {
                 return 0;
             }
             return 1;
         }
 
         private int getLoadingViewCount() {
-            if (mLoadMore == null || !isCanLoadMore()) {
+            if (mLoadMore == null || !isCanLoadMore() || mPlaceholderProvider != null) {
                 return 0;
             }
             return 1;
@@ -839,6 +2029,7 @@ public class PullToRefreshRecyclerView extends RecyclerView {
 
         /**
          * 为了解决在使用GridLayoutManager出现位置不正确的BUG
+         * 用户设置的SpanSizeLookup会被包装,真实数据仍然由它决定
          *
          * @param recyclerView
          */
@@ -847,23 +2038,9 @@ public class PullToRefreshRecyclerView extends RecyclerView {
             super.onAttachedToRecyclerView(recyclerView);
             RecyclerView.LayoutManager manager = recyclerView.getLayoutManager();
             if (manager instanceof GridLayoutManager) {
-                final GridLayoutManager gridManager = ((GridLayoutManager) manager);
-                gridManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
-                    @Override
-                    public int getSpanSize(int position) {
-
-
-                        return (isLoadingMoreView(position - getHeaderViewCount() - getArrowViewCount()) || getHeaderViewCount() == 1 || isFooter(position - getHeaderViewCount() - getArrowViewCount() - adapter.getItemCount()) || getArrowViewCount() == 1)
-                                ? gridManager.getSpanCount() : 1;
-                    }
-                });
+                DecorationSpanSizeLookup.install(PullToRefreshRecyclerView.this, (GridLayoutManager) manager);
             }
         }
-
-        @Override
-        public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
-            super.onBindViewHolder(holder, position, payloads);
-        }
     }
 
     /**
@@ -0,0 +1,103 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+
+import com.cc.pullrecyclerview.pview.listener.IDataApplier;
+import com.cc.pullrecyclerview.pview.listener.IItemComparator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * description: 刷新完成时在后台线程对比新旧数据,回到主线程设置数据并通知真实adapter局部刷新
+ * 新的刷新开始后,还没有完成的对比直接丢弃
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class RefreshDiffer {
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile int mGeneration;
+    /**
+     * 是否有还没有设置的对比,只在主线程访问
+     */
+    private boolean isPending;
+
+    interface OnAppliedListener {
+        void onApplied();
+    }
+
+    void cancel() {
+        mGeneration++;
+        isPending = false;
+        mMainHandler.removeCallbacksAndMessages(null);
+    }
+
+    boolean isPending() {
+        return isPending;
+    }
+
+    /**
+     * 需要在主线程调用,新旧数据会先复制一份,对比期间adapter仍然使用旧数据
+     */
+    <T> void submit(final RecyclerView.Adapter adapter, List<T> oldList, final List<T> newList,
+                    final IItemComparator<T> comparator, final IDataApplier<T> applier,
+                    final OnAppliedListener listener, Executor executor) {
+        cancel();
+        isPending = true;
+        final int generation = mGeneration;
+        final List<T> oldItems = new ArrayList<>(oldList);
+        final List<T> newItems = new ArrayList<>(newList);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                    @Override
+                    public int getOldListSize() {
+                        return oldItems.size();
+                    }
+
+                    @Override
+                    public int getNewListSize() {
+                        return newItems.size();
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                        return comparator.areItemsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                        return comparator.areContentsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+                    }
+
+                    @Override
+                    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                        return comparator.getChangePayload(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+                    }
+                });
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        isPending = false;
+                        applier.onApplyData(newList);
+                        // 真实adapter的变化由DataObserver加上头部的偏移之后通知WarpAdapter
+                        result.dispatchUpdatesTo(adapter);
+                        listener.onApplied();
+                    }
+                });
+            }
+        });
+    }
+}
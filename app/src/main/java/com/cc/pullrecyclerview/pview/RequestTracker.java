@@ -0,0 +1,103 @@
+package com.cc.pullrecyclerview.pview;
+
+/**
+ * description: 记录正在进行的刷新和加载更多请求,每次请求分配一个递增的token
+ * 刷新会作废正在进行的加载更多和加载上一页,过期的token完成时直接忽略
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class RequestTracker {
+    /**
+     * 没有正在进行的请求
+     */
+    static final long NO_TOKEN = 0;
+
+    private long mLastToken = NO_TOKEN;
+    private long mRefreshToken = NO_TOKEN;
+    private long mLoadMoreToken = NO_TOKEN;
+    private long mLoadPreviousToken = NO_TOKEN;
+
+    boolean isRefreshing() {
+        return mRefreshToken != NO_TOKEN;
+    }
+
+    /**
+     * @return 当前刷新的token,没有正在进行的刷新时为NO_TOKEN
+     */
+    long getRefreshToken() {
+        return mRefreshToken;
+    }
+
+    boolean isLoadingMore() {
+        return mLoadMoreToken != NO_TOKEN;
+    }
+
+    /**
+     * 开始刷新,正在进行的加载更多和加载上一页被作废
+     *
+     * @return 刷新的token
+     */
+    long startRefresh() {
+        mLoadMoreToken = NO_TOKEN;
+        mLoadPreviousToken = NO_TOKEN;
+        mRefreshToken = ++mLastToken;
+        return mRefreshToken;
+    }
+
+    long startLoadMore() {
+        mLoadMoreToken = ++mLastToken;
+        return mLoadMoreToken;
+    }
+
+    long startLoadPrevious() {
+        mLoadPreviousToken = ++mLastToken;
+        return mLoadPreviousToken;
+    }
+
+    /**
+     * @return token是否为当前的刷新请求
+     */
+    boolean completeRefresh(long token) {
+        if (token == NO_TOKEN || token != mRefreshToken) {
+            return false;
+        }
+        mRefreshToken = NO_TOKEN;
+        return true;
+    }
+
+    boolean completeLoadMore(long token) {
+        if (token == NO_TOKEN || token != mLoadMoreToken) {
+            return false;
+        }
+        mLoadMoreToken = NO_TOKEN;
+        return true;
+    }
+
+    boolean completeLoadPrevious(long token) {
+        if (token == NO_TOKEN || token != mLoadPreviousToken) {
+            return false;
+        }
+        mLoadPreviousToken = NO_TOKEN;
+        return true;
+    }
+
+    /**
+     * 不带token的完成,结束当前的请求
+     */
+    void clearRefresh() {
+        mRefreshToken = NO_TOKEN;
+    }
+
+    void clearLoadMore() {
+        mLoadMoreToken = NO_TOKEN;
+    }
+
+    void clearLoadPrevious() {
+        mLoadPreviousToken = NO_TOKEN;
+    }
+
+    boolean isValid(long token) {
+        return token != NO_TOKEN && (token == mRefreshToken || token == mLoadMoreToken || token == mLoadPreviousToken);
+    }
+}
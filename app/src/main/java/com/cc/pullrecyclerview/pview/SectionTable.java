@@ -0,0 +1,114 @@
+package com.cc.pullrecyclerview.pview;
+
+/**
+ * description: WarpAdapter的分段表,记录下拉/头部/空布局/数据/尾部/加载更多每一段的起始位置和长度
+ * 只在数据或者装饰布局发生变化的时候重建,查询不产生任何对象
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class SectionTable {
+    /**
+     * 各个分段,顺序即为在列表中的顺序
+     */
+    static final int SECTION_ARROW = 0;
+    static final int SECTION_HEADER = 1;
+    static final int SECTION_EMPTY = 2;
+    static final int SECTION_ITEM = 3;
+    static final int SECTION_FOOTER = 4;
+    static final int SECTION_LOADING = 5;
+    static final int SECTION_NONE = -1;
+
+    private static final int SECTION_COUNT = 6;
+
+    static final SectionTable EMPTY = new SectionTable(0, 0, 0, 0, 0, 0);
+
+    private final int[] mStarts = new int[SECTION_COUNT];
+    private final int[] mLengths = new int[SECTION_COUNT];
+    private final int mItemCount;
+
+    SectionTable(int arrow, int header, int empty, int item, int footer, int loading) {
+        mLengths[SECTION_ARROW] = arrow;
+        mLengths[SECTION_HEADER] = header;
+        mLengths[SECTION_EMPTY] = empty;
+        mLengths[SECTION_ITEM] = item;
+        mLengths[SECTION_FOOTER] = footer;
+        mLengths[SECTION_LOADING] = loading;
+        int start = 0;
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            mStarts[i] = start;
+            start += mLengths[i];
+        }
+        mItemCount = start;
+    }
+
+    /**
+     * 列表的总数量
+     *
+     * @return
+     */
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    int getStart(int section) {
+        return mStarts[section];
+    }
+
+    int getLength(int section) {
+        return mLengths[section];
+    }
+
+    /**
+     * 拿到position所在的分段
+     *
+     * @param position 列表中的位置
+     * @return 分段, 越界时返回 {@link #SECTION_NONE}
+     */
+    int getSection(int position) {
+        if (position < 0 || position >= mItemCount) {
+            return SECTION_NONE;
+        }
+        int section = SECTION_LOADING;
+        while (position < mStarts[section] || mLengths[section] == 0) {
+            section--;
+        }
+        return section;
+    }
+
+    /**
+     * 拿到position在所在分段中的位置
+     *
+     * @param position 列表中的位置
+     * @return 分段内的位置, 越界时返回-1
+     */
+    int getPositionInSection(int position) {
+        int section = getSection(position);
+        return section == SECTION_NONE ? -1 : position - mStarts[section];
+    }
+
+    boolean isInSection(int position, int section) {
+        return position >= mStarts[section] && position < mStarts[section] + mLengths[section];
+    }
+
+    /**
+     * 是否为除真实数据以外的装饰布局
+     *
+     * @param position
+     * @return
+     */
+    boolean isDecoration(int position) {
+        int section = getSection(position);
+        return section != SECTION_NONE && section != SECTION_ITEM;
+    }
+
+    /**
+     * 真实adapter中的位置
+     *
+     * @param position 列表中的位置
+     * @return 真实位置, 不属于数据时返回-1
+     */
+    int getItemPosition(int position) {
+        return isInSection(position, SECTION_ITEM) ? position - mStarts[SECTION_ITEM] : -1;
+    }
+}
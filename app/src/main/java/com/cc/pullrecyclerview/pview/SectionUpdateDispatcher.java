@@ -0,0 +1,118 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.support.v7.util.ListUpdateCallback;
+
+/**
+ * description: 对比变化前后的分段表,把真实adapter的局部刷新转换成WarpAdapter中的位置
+ * 装饰布局(下拉,头部,空布局,尾部,加载更多)数量的变化会转换成精确的插入和删除
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class SectionUpdateDispatcher {
+    private static final int OP_NONE = 0;
+    private static final int OP_INSERT = 1;
+    private static final int OP_REMOVE = 2;
+    private static final int OP_CHANGE = 3;
+    private static final int OP_MOVE = 4;
+
+    private static final int SECTION_COUNT = SectionTable.SECTION_LOADING + 1;
+
+    private final ListUpdateCallback mCallback;
+
+    SectionUpdateDispatcher(ListUpdateCallback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * 只有装饰布局发生了变化
+     *
+     * @return 分段表前后不一致时返回false, 需要整体刷新
+     */
+    boolean dispatchSectionChanged(SectionTable oldTable, SectionTable newTable) {
+        return dispatch(oldTable, newTable, SectionTable.SECTION_NONE, OP_NONE, 0, 0, 0, null);
+    }
+
+    /**
+     * 分段内的插入,其他分段只比较数量
+     *
+     * @param section       发生变化的分段
+     * @param positionStart 分段内的位置
+     */
+    boolean dispatchInserted(SectionTable oldTable, SectionTable newTable, int section, int positionStart, int itemCount) {
+        return dispatch(oldTable, newTable, section, OP_INSERT, positionStart, itemCount, 0, null);
+    }
+
+    boolean dispatchRemoved(SectionTable oldTable, SectionTable newTable, int section, int positionStart, int itemCount) {
+        return dispatch(oldTable, newTable, section, OP_REMOVE, positionStart, itemCount, 0, null);
+    }
+
+    boolean dispatchChanged(SectionTable oldTable, SectionTable newTable, int section, int positionStart, int itemCount, Object payload) {
+        return dispatch(oldTable, newTable, section, OP_CHANGE, positionStart, itemCount, 0, payload);
+    }
+
+    boolean dispatchMoved(SectionTable oldTable, SectionTable newTable, int section, int fromPosition, int toPosition, int itemCount) {
+        return dispatch(oldTable, newTable, section, OP_MOVE, fromPosition, itemCount, toPosition, null);
+    }
+
+    /**
+     * 按分段顺序从上往下分发,每处理完一段之后,后面的分段都已经处于新的起始位置
+     */
+    private boolean dispatch(SectionTable oldTable, SectionTable newTable, int target, int op, int start, int count, int to, Object payload) {
+        if (target == SectionTable.SECTION_NONE) {
+            target = SectionTable.SECTION_ITEM;
+        }
+        int expected = oldTable.getLength(target);
+        if (op == OP_INSERT) {
+            expected += count;
+        } else if (op == OP_REMOVE) {
+            expected -= count;
+        }
+        if (expected != newTable.getLength(target)) {
+            return false;
+        }
+        for (int section = 0; section < SECTION_COUNT; section++) {
+            int offset = newTable.getStart(section);
+            if (section == target) {
+                dispatchItems(offset, op, start, count, to, payload);
+                continue;
+            }
+            int oldLength = oldTable.getLength(section);
+            int newLength = newTable.getLength(section);
+            if (newLength > oldLength) {
+                mCallback.onInserted(offset + oldLength, newLength - oldLength);
+            } else if (newLength < oldLength) {
+                mCallback.onRemoved(offset + newLength, oldLength - newLength);
+            }
+        }
+        return true;
+    }
+
+    private void dispatchItems(int offset, int op, int start, int count, int to, Object payload) {
+        if (count <= 0) {
+            return;
+        }
+        switch (op) {
+            case OP_INSERT:
+                mCallback.onInserted(offset + start, count);
+                break;
+            case OP_REMOVE:
+                mCallback.onRemoved(offset + start, count);
+                break;
+            case OP_CHANGE:
+                mCallback.onChanged(offset + start, count, payload);
+                break;
+            case OP_MOVE:
+                // RecyclerView只支持单个移动,多个时拆成单个移动并保持原有顺序
+                for (int i = 0; i < count; i++) {
+                    if (start > to) {
+                        mCallback.onMoved(offset + start + i, offset + to + i);
+                    } else {
+                        mCallback.onMoved(offset + start, offset + to + count - 1);
+                    }
+                }
+                break;
+            default:
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * description: 多个PullToRefreshRecyclerView共用的缓存池,可以按type预先设置缓存的最大数量
+ * 下拉,头部,尾部,空布局,加载更多这些装饰布局包装的是每个列表自己的View,不会放入缓存池
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public class SharedRecycledViewPool extends RecyclerView.RecycledViewPool {
+    /**
+     * 没有指定默认数量时使用的值,和RecycledViewPool保持一致
+     */
+    public static final int DEFAULT_MAX_SCRAP = 5;
+    /**
+     * 每个type的最大缓存数量,type第一次放入缓存池时如果还没有设置过,会按默认数量写入
+     */
+    private final SparseIntArray mMaxRecycledViews = new SparseIntArray();
+    /**
+     * 没有单独设置的type缓存的最大数量
+     */
+    private final int mDefaultMaxRecycledViews;
+
+    public SharedRecycledViewPool() {
+        this(null);
+    }
+
+    /**
+     * @param maxRecycledViews key为真实adapter的type, value为该type缓存的最大数量
+     */
+    public SharedRecycledViewPool(@Nullable SparseIntArray maxRecycledViews) {
+        this(DEFAULT_MAX_SCRAP, maxRecycledViews);
+    }
+
+    /**
+     * @param defaultMaxRecycledViews 没有单独设置的type缓存的最大数量
+     * @param maxRecycledViews        key为真实adapter的type, value为该type缓存的最大数量
+     */
+    public SharedRecycledViewPool(int defaultMaxRecycledViews, @Nullable SparseIntArray maxRecycledViews) {
+        mDefaultMaxRecycledViews = Math.max(0, defaultMaxRecycledViews);
+        if (maxRecycledViews != null) {
+            for (int i = 0, size = maxRecycledViews.size(); i < size; i++) {
+                setMaxRecycledViews(maxRecycledViews.keyAt(i), maxRecycledViews.valueAt(i));
+            }
+        }
+    }
+
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+        if (PullToRefreshRecyclerView.isDecoratorViewType(viewType)) {
+            max = 0;
+        }
+        mMaxRecycledViews.put(viewType, max);
+        super.setMaxRecycledViews(viewType, max);
+    }
+
+    /**
+     * 该type缓存的最大数量
+     *
+     * @param viewType
+     * @return
+     */
+    public int getMaxRecycledViews(int viewType) {
+        if (PullToRefreshRecyclerView.isDecoratorViewType(viewType)) {
+            return 0;
+        }
+        return mMaxRecycledViews.get(viewType, mDefaultMaxRecycledViews);
+    }
+
+    @Override
+    public void putRecycledView(RecyclerView.ViewHolder scrap) {
+        int viewType = scrap.getItemViewType();
+        if (PullToRefreshRecyclerView.isDecoratorViewType(viewType)) {
+            return;
+        }
+        if (mMaxRecycledViews.indexOfKey(viewType) < 0) {
+            // 不依赖RecycledViewPool内部的默认值,保证getMaxRecycledViews和实际一致
+            setMaxRecycledViews(viewType, mDefaultMaxRecycledViews);
+        }
+        super.putRecycledView(scrap);
+    }
+}
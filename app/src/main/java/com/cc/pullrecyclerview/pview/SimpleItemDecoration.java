@@ -8,7 +8,7 @@ import android.view.View;
 
 /**
  * description: 简易的分割线实现,暂时只支持了LinearLayoutManager,其他请进行自定义
- * 如果需要自定义实现需要考虑到顶部的ArrowView,HeaderView,FooterView的个数
+ * 如果需要自定义实现可以通过PullToRefreshRecyclerView.getRealItemPosition过滤掉ArrowView,HeaderView,FooterView
  * author: chencong
  * date: 2017/10/25
  */
@@ -53,10 +53,11 @@ public class SimpleItemDecoration extends RecyclerView.ItemDecoration {
             for (int i = 0; i < childCount; i++) {
                 View childAt = parent.getChildAt(i);
                 int childAdapterPosition = parent.getChildAdapterPosition(childAt);
-                if(childAdapterPosition>1+(rootView.getHeaderViewSize()==0?0:1)&&childAdapterPosition<=1+(rootView.getHeaderViewSize()==0?0:1)+rootView.getAdapter().getItemCount()){
-                    int top = childAt.getTop() - mDividerHeight;
+                if (rootView.getRealItemPosition(childAdapterPosition) > 0) {
+                    // 下拉平移和进入动画时分割线跟随item移动
+                    int bottom = childAt.getTop() + Math.round(childAt.getTranslationY());
+                    int top = bottom - mDividerHeight;
                     int left = parent.getPaddingLeft();
-                    int bottom = childAt.getTop();
                     int right = parent.getWidth() - parent.getPaddingRight();
                     c.drawRect(left, top, right, bottom, mDividerPaint);
                 }
@@ -75,7 +76,7 @@ public class SimpleItemDecoration extends RecyclerView.ItemDecoration {
         if (parent instanceof PullToRefreshRecyclerView) {
             PullToRefreshRecyclerView rootView = (PullToRefreshRecyclerView) parent;
             int childAdapterPosition = parent.getChildAdapterPosition(view);
-            if(childAdapterPosition>1+(rootView.getHeaderViewSize()==0?0:1)&&childAdapterPosition<=1+(rootView.getHeaderViewSize()==0?0:1)+rootView.getAdapter().getItemCount()){
+            if (rootView.getRealItemPosition(childAdapterPosition) > 0) {
                 outRect.top = mDividerHeight;
             }
 
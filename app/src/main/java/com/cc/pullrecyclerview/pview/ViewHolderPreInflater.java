@@ -0,0 +1,132 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * description: 在后台线程提前创建ViewHolder并放入缓存池,首屏布局时只需要绑定数据
+ * 后台创建时使用克隆出来的LayoutInflater,不会和主线程共用同一个实例
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class ViewHolderPreInflater {
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * adapter变化之后,之前还没有完成的预创建全部作废
+     */
+    private volatile int mGeneration;
+
+    void invalidate() {
+        mGeneration++;
+        mMainHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * 需要在主线程调用
+     *
+     * @param context  列表的context
+     * @param adapter  真实的adapter
+     * @param pool     放入的缓存池
+     * @param counts   key为type,value为需要创建的数量
+     * @param executor 创建ViewHolder的线程池
+     */
+    void preInflate(Context context, final RecyclerView.Adapter adapter, final RecyclerView.RecycledViewPool pool,
+                    SparseIntArray counts, Executor executor) {
+        final int generation = mGeneration;
+        final ViewGroup parent = new InflateParent(new InflaterContext(context));
+        for (int i = 0, size = counts.size(); i < size; i++) {
+            final int viewType = counts.keyAt(i);
+            final int count = getInflateCount(pool, viewType, counts.valueAt(i));
+            if (count <= 0 || PullToRefreshRecyclerView.isDecoratorViewType(viewType))
+                continue;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final List<RecyclerView.ViewHolder> holders = new ArrayList<>(count);
+                    for (int j = 0; j < count && generation == mGeneration; j++) {
+                        holders.add(adapter.createViewHolder(parent, viewType));
+                    }
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation == mGeneration) {
+                                putRecycledViews(pool, viewType, holders);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * SharedRecycledViewPool可以读取最大数量,只创建缓存池还放得下的数量;
+     * 普通的RecycledViewPool不能读取最大数量,按请求的数量创建
+     */
+    private static int getInflateCount(RecyclerView.RecycledViewPool pool, int viewType, int count) {
+        if (pool instanceof SharedRecycledViewPool) {
+            int free = ((SharedRecycledViewPool) pool).getMaxRecycledViews(viewType) - pool.getRecycledViewCount(viewType);
+            return Math.min(count, free);
+        }
+        return count;
+    }
+
+    /**
+     * 不修改缓存池设置的最大数量,放满之后多出来的ViewHolder直接丢弃
+     */
+    private static void putRecycledViews(RecyclerView.RecycledViewPool pool, int viewType, List<RecyclerView.ViewHolder> holders) {
+        for (int i = 0, size = holders.size(); i < size; i++) {
+            pool.putRecycledView(holders.get(i));
+        }
+    }
+
+    /**
+     * LayoutInflater不是线程安全的,后台创建时adapter从parent拿到的是单独克隆的LayoutInflater
+     */
+    private static final class InflaterContext extends ContextWrapper {
+        private final LayoutInflater mInflater;
+
+        InflaterContext(Context base) {
+            super(base);
+            mInflater = LayoutInflater.from(base).cloneInContext(this);
+        }
+
+        @Override
+        public Object getSystemService(String name) {
+            if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+                return mInflater;
+            }
+            return super.getSystemService(name);
+        }
+    }
+
+    /**
+     * 只用来给inflate提供parent,生成和RecyclerView一样的LayoutParams
+     */
+    private static final class InflateParent extends ViewGroup {
+        InflateParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        }
+
+        @Override
+        public LayoutParams generateLayoutParams(AttributeSet attrs) {
+            return new RecyclerView.LayoutParams(getContext(), attrs);
+        }
+    }
+}
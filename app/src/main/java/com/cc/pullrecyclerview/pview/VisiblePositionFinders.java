@@ -0,0 +1,128 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+
+import com.cc.pullrecyclerview.pview.listener.IVisiblePositionFinder;
+
+/**
+ * description: 常用LayoutManager的可见位置查找,在设置LayoutManager的时候选择一次,
+ * 查找过程中复用缓存的数组,不会创建对象
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+final class VisiblePositionFinders {
+
+    private VisiblePositionFinders() {
+    }
+
+    /**
+     * 根据LayoutManager选择对应的查找方式
+     *
+     * @param layoutManager
+     * @return layoutManager为空时返回null
+     */
+    static IVisiblePositionFinder create(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager == null) {
+            return null;
+        } else if (layoutManager instanceof LinearLayoutManager) {
+            return LINEAR;
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            return new StaggeredFinder();
+        } else {
+            return CHILDREN;
+        }
+    }
+
+    /**
+     * LinearLayoutManager和GridLayoutManager
+     */
+    static final IVisiblePositionFinder LINEAR = new IVisiblePositionFinder() {
+        @Override
+        public int findFirstVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            return ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+        }
+
+        @Override
+        public int findLastVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            return ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        }
+    };
+
+    /**
+     * 其他LayoutManager,遍历已经添加的子控件
+     */
+    static final IVisiblePositionFinder CHILDREN = new IVisiblePositionFinder() {
+        @Override
+        public int findFirstVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            int first = RecyclerView.NO_POSITION;
+            for (int i = 0, count = layoutManager.getChildCount(); i < count; i++) {
+                View child = layoutManager.getChildAt(i);
+                int position = layoutManager.getPosition(child);
+                if (position != RecyclerView.NO_POSITION && (first == RecyclerView.NO_POSITION || position < first)) {
+                    first = position;
+                }
+            }
+            return first;
+        }
+
+        @Override
+        public int findLastVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            int last = RecyclerView.NO_POSITION;
+            for (int i = 0, count = layoutManager.getChildCount(); i < count; i++) {
+                int position = layoutManager.getPosition(layoutManager.getChildAt(i));
+                if (position > last) {
+                    last = position;
+                }
+            }
+            return last;
+        }
+    };
+
+    /**
+     * StaggeredGridLayoutManager,每个实例持有自己的数组,只在列数变化的时候重新创建
+     */
+    static final class StaggeredFinder implements IVisiblePositionFinder {
+        private int[] mPositions = new int[0];
+
+        @Override
+        public int findFirstVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            int[] positions = findPositions((StaggeredGridLayoutManager) layoutManager, true);
+            int min = RecyclerView.NO_POSITION;
+            for (int value : positions) {
+                if (value != RecyclerView.NO_POSITION && (min == RecyclerView.NO_POSITION || value < min)) {
+                    min = value;
+                }
+            }
+            return min;
+        }
+
+        @Override
+        public int findLastVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            int[] positions = findPositions((StaggeredGridLayoutManager) layoutManager, false);
+            int max = RecyclerView.NO_POSITION;
+            for (int value : positions) {
+                if (value > max) {
+                    max = value;
+                }
+            }
+            return max;
+        }
+
+        private int[] findPositions(StaggeredGridLayoutManager layoutManager, boolean first) {
+            int spanCount = layoutManager.getSpanCount();
+            if (mPositions.length != spanCount) {
+                mPositions = new int[spanCount];
+            }
+            if (first) {
+                layoutManager.findFirstVisibleItemPositions(mPositions);
+            } else {
+                layoutManager.findLastVisibleItemPositions(mPositions);
+            }
+            return mPositions;
+        }
+    }
+}
@@ -12,10 +12,19 @@ import android.view.View;
 public abstract class BaseAnimation {
 
     /**
+     * 每个item只会调用一次,返回的动画会在之后的绑定中重复使用
      *
      * @param view
      * @return
      */
     public abstract Animator getAnimators(View view);
 
+    /**
+     * 动画被取消或者item被回收时调用,需要把view恢复到动画结束时的状态
+     *
+     * @param view
+     */
+    public void reset(View view) {
+    }
+
 }
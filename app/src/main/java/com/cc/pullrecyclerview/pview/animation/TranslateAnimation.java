@@ -26,7 +26,12 @@ public class TranslateAnimation extends BaseAnimation {
 
     @Override
     public Animator getAnimators(View view) {
-        return ObjectAnimator.ofFloat(view,"translationY",mTran,0f);
+        return ObjectAnimator.ofFloat(view, View.TRANSLATION_Y, mTran, 0f);
+    }
+
+    @Override
+    public void reset(View view) {
+        view.setTranslationY(0f);
     }
 
 }
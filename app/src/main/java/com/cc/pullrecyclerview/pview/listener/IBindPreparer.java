@@ -0,0 +1,34 @@
+package com.cc.pullrecyclerview.pview.listener;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * description: 绑定数据前的准备阶段,把文字排版,格式化这类耗时的计算放到后台线程,
+ * 主线程绑定时只使用准备好的结果,设置后代替adapter的onBindViewHolder
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public interface IBindPreparer<VH extends RecyclerView.ViewHolder, T> {
+
+    /**
+     * 在后台线程执行,也可能在主线程执行(滑动太快还没有准备好的时候)
+     * 只能读取不会被修改的数据,数据发生变化后之前的结果会被丢弃
+     *
+     * @param position 真实adapter中的位置
+     * @return 准备好的结果
+     */
+    T onPrepare(int position);
+
+    /**
+     * 在主线程执行,使用准备好的结果绑定数据
+     *
+     * @param holder
+     * @param position 真实adapter中的位置
+     * @param prepared onPrepare的结果
+     * @param payloads 局部刷新的参数,为空时是完整绑定
+     */
+    void onBindPrepared(VH holder, int position, T prepared, List<Object> payloads);
+}
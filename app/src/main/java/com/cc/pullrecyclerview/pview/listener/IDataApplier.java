@@ -0,0 +1,14 @@
+package com.cc.pullrecyclerview.pview.listener;
+
+import java.util.List;
+
+/**
+ * description: 对比完成之后在主线程把新数据设置给adapter,不需要调用notify方法
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public interface IDataApplier<T> {
+
+    void onApplyData(List<T> newList);
+}
@@ -0,0 +1,27 @@
+package com.cc.pullrecyclerview.pview.listener;
+
+/**
+ * description: 刷新时对比新旧数据,在后台线程调用
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public interface IItemComparator<T> {
+
+    /**
+     * 是否为同一条数据,一般比较id
+     */
+    boolean areItemsTheSame(T oldItem, T newItem);
+
+    /**
+     * 同一条数据的内容是否相同,不同时会局部刷新
+     */
+    boolean areContentsTheSame(T oldItem, T newItem);
+
+    /**
+     * 内容不同时局部刷新的参数
+     *
+     * @return 为空时完整绑定
+     */
+    Object getChangePayload(T oldItem, T newItem);
+}
@@ -0,0 +1,26 @@
+package com.cc.pullrecyclerview.pview.listener;
+
+import android.view.View;
+
+/**
+ * description: 支持失败状态的加载更多布局,没有实现时加载失败按onComplete展示
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public interface ILoadMoreErrorState extends ILoadMoreState {
+
+    /**
+     * 加载失败,需要展示可以点击重试的状态
+     */
+    void onError();
+
+    /**
+     * 设置重试的回调,失败状态下点击时调用listener.onClick.
+     * 由实现自己决定点击哪个控件重试,不要覆盖外部给getLoadMoreView()设置的点击事件
+     *
+     * @param listener 为null时取消
+     */
+    void setOnRetryListener(View.OnClickListener listener);
+
+}
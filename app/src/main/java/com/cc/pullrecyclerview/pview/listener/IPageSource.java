@@ -0,0 +1,40 @@
+package com.cc.pullrecyclerview.pview.listener;
+
+import android.support.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * description: 分页数据源,通过上一页返回的key加载下一页,在后台线程调用
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public interface IPageSource<K, T> {
+
+    /**
+     * 加载一页数据,在后台线程执行,可以直接阻塞
+     *
+     * @param key 为空时加载第一页
+     * @return 这一页的数据
+     * @throws Exception 加载失败
+     */
+    Page<K, T> load(@Nullable K key) throws Exception;
+
+    /**
+     * 一页的数据和下一页的key
+     */
+    final class Page<K, T> {
+        public final List<T> items;
+        /**
+         * 为空时表示没有更多
+         */
+        @Nullable
+        public final K nextKey;
+
+        public Page(List<T> items, @Nullable K nextKey) {
+            this.items = items;
+            this.nextKey = nextKey;
+        }
+    }
+}
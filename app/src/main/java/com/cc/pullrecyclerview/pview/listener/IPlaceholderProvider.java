@@ -0,0 +1,49 @@
+package com.cc.pullrecyclerview.pview.listener;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * description: 已知总数时为还没有加载的位置提供占位布局,列表数量始终为总数,不再显示加载更多布局
+ * 数据加载完成后通过真实adapter的notifyItemRangeChanged把占位布局原地替换成真实数据
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public interface IPlaceholderProvider {
+
+    /**
+     * 数据的总数,变化时需要调用真实adapter的notifyDataSetChanged
+     */
+    int getTotalCount();
+
+    /**
+     * 该位置的数据是否已经加载
+     *
+     * @param position 真实adapter中的位置
+     */
+    boolean isLoaded(int position);
+
+    /**
+     * 占位布局的stableId,真实adapter开启stableIds时使用.
+     * 需要由所在的未加载范围的key(比如页的key)和范围内的偏移得到,位置移动时保持不变,
+     * 不能和真实数据的id以及从Long.MIN_VALUE开始的装饰布局id重复
+     *
+     * @param position 真实adapter中的位置
+     */
+    long getPlaceholderId(int position);
+
+    /**
+     * 创建占位布局,所有占位使用同一个type,可以被复用
+     */
+    View onCreatePlaceholderView(ViewGroup parent);
+
+    /**
+     * 占位布局被绑定,需要开始加载该位置所在的页,同一页可能回调多次,需要自己去重.
+     * 在绑定之后的下一个主线程消息中回调,已经不在布局过程中;加载完成后的notifyItemRangeChanged
+     * 仍然建议在请求返回时调用,不要在这个回调里同步通知
+     *
+     * @param position 真实adapter中的位置
+     */
+    void onPlaceholderBound(int position);
+}
@@ -0,0 +1,30 @@
+package com.cc.pullrecyclerview.pview.listener;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * description: 查找可见位置的接口,自定义的LayoutManager需要实现后通过
+ * PullToRefreshRecyclerView.setVisiblePositionFinder设置,该方法在滑动过程中调用,不要创建对象
+ * author: chencong
+ * date: 2017/12/8
+ */
+
+public interface IVisiblePositionFinder {
+
+    /**
+     * 第一个可见的位置
+     *
+     * @param layoutManager 当前的LayoutManager
+     * @return 没有可见的item时返回RecyclerView.NO_POSITION
+     */
+    int findFirstVisibleItemPosition(RecyclerView.LayoutManager layoutManager);
+
+    /**
+     * 最后一个可见的位置
+     *
+     * @param layoutManager 当前的LayoutManager
+     * @return 没有可见的item时返回RecyclerView.NO_POSITION
+     */
+    int findLastVisibleItemPosition(RecyclerView.LayoutManager layoutManager);
+
+}
@@ -11,6 +11,14 @@ public interface PullToRefreshHeaderHelper  {
     int STATE_RELEASE_TO_REFRESH = 1;
     int STATE_REFRESHING = 2;
     int STATE_DONE = 3;
+    /**
+     * 下拉时修改头部高度,每次移动都会重新布局
+     */
+    int PULL_MODE_LAYOUT = 0;
+    /**
+     * 下拉时只平移列表的子控件,只在回弹到刷新高度或者收起时布局一次
+     */
+    int PULL_MODE_TRANSLATE = 1;
 
 
     void onMove(int dy);
@@ -0,0 +1,84 @@
+package com.cc.pullrecyclerview.pview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 自动重试的延迟按指数增长,抖动之后不低于一半,不超过最大延迟
+ */
+public class LoadMoreRetryPolicyTest {
+    private static final int SAMPLES = 200;
+    private LoadMoreRetryPolicy mPolicy;
+
+    @Before
+    public void setUp() throws Exception {
+        mPolicy = new LoadMoreRetryPolicy();
+    }
+
+    @Test
+    public void delay_doublesWithinJitterBounds() throws Exception {
+        for (int i = 0; i < SAMPLES; i++) {
+            mPolicy.setPolicy(4, 1000, 60000);
+            mPolicy.reset();
+            assertBetween(500, 1000, mPolicy.onFailure());
+            assertBetween(1000, 2000, mPolicy.onFailure());
+            assertBetween(2000, 4000, mPolicy.onFailure());
+            assertBetween(4000, 8000, mPolicy.onFailure());
+        }
+    }
+
+    @Test
+    public void delay_cappedByMaxDelay() throws Exception {
+        mPolicy.setPolicy(10, 1000, 3000);
+        for (int i = 1; i <= 10; i++) {
+            long delay = mPolicy.onFailure();
+            long expected = Math.min(3000, 1000L << (i - 1));
+            assertBetween(expected / 2, expected, delay);
+        }
+    }
+
+    @Test
+    public void stopsAfterMaxRetries() throws Exception {
+        mPolicy.setPolicy(2, 1000, 30000);
+
+        assertTrue(mPolicy.onFailure() >= 0);
+        assertTrue(mPolicy.onFailure() >= 0);
+        assertEquals(-1, mPolicy.onFailure());
+        assertEquals(-1, mPolicy.onFailure());
+        assertEquals(4, mPolicy.getFailureCount());
+    }
+
+    @Test
+    public void zeroRetries_onlyManualRetry() throws Exception {
+        mPolicy.setPolicy(0, 1000, 30000);
+
+        assertEquals(-1, mPolicy.onFailure());
+    }
+
+    @Test
+    public void reset_startsFromBaseDelay() throws Exception {
+        mPolicy.setPolicy(1, 1000, 30000);
+        mPolicy.onFailure();
+        assertEquals(-1, mPolicy.onFailure());
+
+        mPolicy.reset();
+
+        assertEquals(0, mPolicy.getFailureCount());
+        assertBetween(500, 1000, mPolicy.onFailure());
+    }
+
+    @Test
+    public void maxDelayBelowBase_usesBase() throws Exception {
+        mPolicy.setPolicy(3, 2000, 500);
+
+        assertBetween(1000, 2000, mPolicy.onFailure());
+        assertBetween(1000, 2000, mPolicy.onFailure());
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual + " < " + min, actual >= min);
+        assertTrue(actual + " > " + max, actual <= max);
+    }
+}
@@ -0,0 +1,145 @@
+package com.cc.pullrecyclerview.pview;
+
+import com.cc.pullrecyclerview.pview.listener.IPageSource;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分页缓存按最近使用淘汰,命名空间之间互不影响,恢复时只取出连续缓存的页
+ */
+public class PageCacheTest {
+    private static final String NEWS = "news";
+    private static final String SPORTS = "sports";
+
+    @Test
+    public void evictsLeastRecentlyUsedPage() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(3);
+        cache.put(NEWS, null, page(1, "a"));
+        cache.put(NEWS, 1, page(2, "b"));
+        cache.put(NEWS, 2, page(3, "c"));
+        // 访问第一页之后,最久没有使用的是key为1的页
+        assertNotNull(cache.get(NEWS, null));
+
+        cache.put(NEWS, 3, page(null, "d"));
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get(NEWS, 1));
+        assertNotNull(cache.get(NEWS, null));
+        assertNotNull(cache.get(NEWS, 2));
+        assertNotNull(cache.get(NEWS, 3));
+    }
+
+    @Test
+    public void maxPagesIsSharedByNamespaces() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(2);
+        cache.put(NEWS, null, page(1, "a"));
+        cache.put(SPORTS, null, page(1, "b"));
+        cache.put(SPORTS, 1, page(null, "c"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(NEWS, null));
+        assertNotNull(cache.get(SPORTS, null));
+    }
+
+    @Test
+    public void clearNamespace_keepsOtherNamespaces() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(10);
+        cache.put(NEWS, null, page(1, "a"));
+        cache.put(NEWS, 1, page(null, "b"));
+        cache.put(SPORTS, null, page(1, "c"));
+
+        cache.clear(NEWS);
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get(NEWS, null));
+        assertNull(cache.get(NEWS, 1));
+        assertNotNull(cache.get(SPORTS, null));
+    }
+
+    @Test
+    public void sameKeyInDifferentNamespaces_doesNotCollide() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(10);
+        IPageSource.Page<Integer, String> news = page(1, "a");
+        IPageSource.Page<Integer, String> sports = page(1, "b");
+        cache.put(NEWS, null, news);
+        cache.put(SPORTS, null, sports);
+
+        assertSame(news, cache.get(NEWS, null));
+        assertSame(sports, cache.get(SPORTS, null));
+    }
+
+    @Test
+    public void countsHitsAndMisses() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(10);
+        cache.put(NEWS, null, page(1, "a"));
+
+        cache.get(NEWS, null);
+        cache.get(NEWS, 1);
+        cache.get(SPORTS, null);
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1f / 3, cache.getHitRate(), 0.0001f);
+        cache.resetStats();
+        assertEquals(0f, cache.getHitRate(), 0f);
+    }
+
+    @Test
+    public void chain_followsNextKeysUntilLastPage() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(10);
+        IPageSource.Page<Integer, String> first = page(1, "a");
+        IPageSource.Page<Integer, String> second = page(2, "b");
+        IPageSource.Page<Integer, String> last = page(null, "c");
+        cache.put(NEWS, null, first);
+        cache.put(NEWS, 1, second);
+        cache.put(NEWS, 2, last);
+
+        assertEquals(Arrays.asList(first, second, last), cache.getChain(NEWS, 0));
+    }
+
+    @Test
+    public void chain_stopsAtEvictedPage() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(3);
+        IPageSource.Page<Integer, String> first = page(1, "a");
+        cache.put(NEWS, null, first);
+        cache.put(NEWS, 1, page(2, "b"));
+        cache.put(NEWS, 2, page(3, "c"));
+        cache.get(NEWS, null);
+        cache.get(NEWS, 2);
+        // 淘汰key为1的页,第三页还在缓存里,但是中间断开了
+        cache.put(SPORTS, null, page(null, "d"));
+
+        List<IPageSource.Page<Integer, String>> chain = cache.getChain(NEWS, 0);
+
+        assertEquals(1, chain.size());
+        assertSame(first, chain.get(0));
+        assertEquals(Integer.valueOf(1), chain.get(chain.size() - 1).nextKey);
+    }
+
+    @Test
+    public void chain_stopsAtMaxPages() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(10);
+        cache.put(NEWS, null, page(1, "a"));
+        cache.put(NEWS, 1, page(2, "b"));
+        cache.put(NEWS, 2, page(null, "c"));
+
+        assertEquals(2, cache.getChain(NEWS, 2).size());
+    }
+
+    @Test
+    public void chain_emptyWithoutFirstPage() throws Exception {
+        PageCache<Integer, String> cache = new PageCache<>(10);
+        cache.put(NEWS, 1, page(null, "b"));
+
+        assertTrue(cache.getChain(NEWS, 0).isEmpty());
+    }
+
+    private static IPageSource.Page<Integer, String> page(Integer nextKey, String... items) {
+        return new IPageSource.Page<>(Arrays.asList(items), nextKey);
+    }
+}
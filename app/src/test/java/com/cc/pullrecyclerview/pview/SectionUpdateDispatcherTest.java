@@ -0,0 +1,195 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证真实adapter的局部刷新在WarpAdapter中的位置和需要重新绑定的数量
+ */
+public class SectionUpdateDispatcherTest {
+    private RecordingCallback mCallback;
+    private SectionUpdateDispatcher mDispatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        mCallback = new RecordingCallback();
+        mDispatcher = new SectionUpdateDispatcher(mCallback);
+    }
+
+    private void startWith(SectionTable table) {
+        mCallback.reset(table.getItemCount());
+    }
+
+    @Test
+    public void appendPage_insertsExactlyPageSize() throws Exception {
+        SectionTable oldTable = new SectionTable(1, 1, 0, 20, 1, 1);
+        SectionTable newTable = new SectionTable(1, 1, 0, 40, 1, 1);
+        startWith(oldTable);
+
+        assertTrue(mDispatcher.dispatchInserted(oldTable, newTable, SectionTable.SECTION_ITEM, 20, 20));
+
+        assertEquals(1, mCallback.events.size());
+        assertEquals("insert 22 20", mCallback.events.get(0));
+        assertEquals(newTable.getItemCount(), mCallback.rows.size());
+        assertEquals(range(22, 20), mCallback.boundPositions());
+    }
+
+    @Test
+    public void changeRange_shiftedByArrowAndHeader() throws Exception {
+        SectionTable table = new SectionTable(1, 1, 0, 20, 0, 1);
+        startWith(table);
+
+        assertTrue(mDispatcher.dispatchChanged(table, table, SectionTable.SECTION_ITEM, 5, 3, "payload"));
+
+        assertEquals(1, mCallback.events.size());
+        assertEquals("change 7 3 payload", mCallback.events.get(0));
+        assertEquals(table.getItemCount(), mCallback.rows.size());
+        assertEquals(range(7, 3), mCallback.boundPositions());
+    }
+
+    @Test
+    public void firstPage_replacesEmptyViewWithPreciseUpdates() throws Exception {
+        SectionTable emptyTable = new SectionTable(1, 0, 1, 0, 0, 0);
+        SectionTable newTable = new SectionTable(1, 1, 0, 10, 1, 1);
+        startWith(emptyTable);
+
+        assertTrue(mDispatcher.dispatchInserted(emptyTable, newTable, SectionTable.SECTION_ITEM, 0, 10));
+
+        assertEquals(5, mCallback.events.size());
+        assertEquals("insert 1 1", mCallback.events.get(0));
+        assertEquals("remove 2 1", mCallback.events.get(1));
+        assertEquals("insert 2 10", mCallback.events.get(2));
+        assertEquals("insert 12 1", mCallback.events.get(3));
+        assertEquals("insert 13 1", mCallback.events.get(4));
+        assertEquals(newTable.getItemCount(), mCallback.rows.size());
+        // 下拉头部保持不变,其余都是新插入的行
+        assertEquals(range(1, 13), mCallback.boundPositions());
+    }
+
+    @Test
+    public void removeAll_showsEmptyView() throws Exception {
+        SectionTable oldTable = new SectionTable(1, 1, 0, 10, 0, 1);
+        SectionTable emptyTable = new SectionTable(1, 0, 1, 0, 0, 0);
+        startWith(oldTable);
+
+        assertTrue(mDispatcher.dispatchRemoved(oldTable, emptyTable, SectionTable.SECTION_ITEM, 0, 10));
+
+        assertEquals(4, mCallback.events.size());
+        assertEquals("remove 1 1", mCallback.events.get(0));
+        assertEquals("insert 1 1", mCallback.events.get(1));
+        assertEquals("remove 2 10", mCallback.events.get(2));
+        assertEquals("remove 2 1", mCallback.events.get(3));
+        assertEquals(emptyTable.getItemCount(), mCallback.rows.size());
+        assertEquals(range(1, 1), mCallback.boundPositions());
+    }
+
+    @Test
+    public void moveRange_keepsItemCount() throws Exception {
+        SectionTable table = new SectionTable(1, 0, 0, 10, 0, 0);
+        startWith(table);
+
+        assertTrue(mDispatcher.dispatchMoved(table, table, SectionTable.SECTION_ITEM, 2, 6, 2));
+
+        assertEquals(2, mCallback.events.size());
+        assertEquals("move 3 8", mCallback.events.get(0));
+        assertEquals("move 3 8", mCallback.events.get(1));
+        assertEquals(range(0, 0), mCallback.boundPositions());
+        // 原来的第2,3条移动到第6,7条之后,保持顺序
+        assertEquals(Arrays.asList(0, 1, 2, 5, 6, 7, 8, 3, 4, 9, 10), mCallback.rows);
+    }
+
+    @Test
+    public void removeMiddleHeader_removesOnlyThatRow() throws Exception {
+        SectionTable oldTable = new SectionTable(1, 3, 0, 10, 1, 1);
+        SectionTable newTable = new SectionTable(1, 2, 0, 10, 1, 1);
+        startWith(oldTable);
+
+        assertTrue(mDispatcher.dispatchRemoved(oldTable, newTable, SectionTable.SECTION_HEADER, 1, 1));
+
+        assertEquals(1, mCallback.events.size());
+        assertEquals("remove 2 1", mCallback.events.get(0));
+        assertEquals(range(0, 0), mCallback.boundPositions());
+        assertEquals(Arrays.asList(0, 1, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15), mCallback.rows);
+    }
+
+    @Test
+    public void inconsistentCount_requestsFullRefresh() throws Exception {
+        SectionTable oldTable = new SectionTable(1, 0, 0, 10, 0, 0);
+        SectionTable newTable = new SectionTable(1, 0, 0, 15, 0, 0);
+
+        assertFalse(mDispatcher.dispatchInserted(oldTable, newTable, SectionTable.SECTION_ITEM, 10, 2));
+        assertTrue(mCallback.events.isEmpty());
+    }
+
+    private static List<Integer> range(int start, int count) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            positions.add(start + i);
+        }
+        return positions;
+    }
+
+    /**
+     * 记录分发出去的变化,并像RecyclerView一样把变化应用到变化前的行上.
+     * 原有的行用变化前的位置表示,插入和刷新的行标记为BOUND,即RecyclerView需要重新绑定的行
+     */
+    private static class RecordingCallback implements ListUpdateCallback {
+        static final Integer BOUND = -1;
+        final List<String> events = new ArrayList<>();
+        final List<Integer> rows = new ArrayList<>();
+
+        void reset(int itemCount) {
+            events.clear();
+            rows.clear();
+            rows.addAll(range(0, itemCount));
+        }
+
+        /**
+         * 需要重新绑定的行在变化后的位置
+         */
+        List<Integer> boundPositions() {
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).equals(BOUND)) {
+                    positions.add(i);
+                }
+            }
+            return positions;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add("insert " + position + " " + count);
+            rows.addAll(position, Collections.nCopies(count, BOUND));
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add("remove " + position + " " + count);
+            rows.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events.add("move " + fromPosition + " " + toPosition);
+            rows.add(toPosition, rows.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            events.add("change " + position + " " + count + " " + payload);
+            for (int i = position; i < position + count; i++) {
+                rows.set(i, BOUND);
+            }
+        }
+    }
+}
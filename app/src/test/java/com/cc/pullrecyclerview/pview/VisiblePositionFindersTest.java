@@ -0,0 +1,134 @@
+package com.cc.pullrecyclerview.pview;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+
+import com.cc.pullrecyclerview.pview.listener.IVisiblePositionFinder;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 滑动过程中查找可见位置不能创建对象
+ */
+public class VisiblePositionFindersTest {
+    private static final int ITERATIONS = 10000;
+
+    @Test
+    public void create_picksFinderOncePerLayoutManager() throws Exception {
+        assertNull(VisiblePositionFinders.create(null));
+        assertSame(VisiblePositionFinders.LINEAR, VisiblePositionFinders.create(new FakeLinearLayoutManager(3, 9)));
+        assertTrue(VisiblePositionFinders.create(new FakeStaggeredLayoutManager(3)) instanceof VisiblePositionFinders.StaggeredFinder);
+    }
+
+    @Test
+    public void staggered_findsMinAndMax() throws Exception {
+        FakeStaggeredLayoutManager layoutManager = new FakeStaggeredLayoutManager(3);
+        IVisiblePositionFinder finder = VisiblePositionFinders.create(layoutManager);
+
+        assertEquals(10, finder.findFirstVisibleItemPosition(layoutManager));
+        assertEquals(12, finder.findLastVisibleItemPosition(layoutManager));
+    }
+
+    @Test
+    public void staggered_doesNotAllocate() throws Exception {
+        final FakeStaggeredLayoutManager layoutManager = new FakeStaggeredLayoutManager(4);
+        final IVisiblePositionFinder finder = VisiblePositionFinders.create(layoutManager);
+
+        assertEquals(0, allocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    finder.findLastVisibleItemPosition(layoutManager);
+                    finder.findFirstVisibleItemPosition(layoutManager);
+                }
+            }
+        }));
+    }
+
+    @Test
+    public void linear_doesNotAllocate() throws Exception {
+        final FakeLinearLayoutManager layoutManager = new FakeLinearLayoutManager(3, 9);
+        final IVisiblePositionFinder finder = VisiblePositionFinders.create(layoutManager);
+
+        assertEquals(0, allocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    finder.findLastVisibleItemPosition(layoutManager);
+                    finder.findFirstVisibleItemPosition(layoutManager);
+                }
+            }
+        }));
+    }
+
+    /**
+     * 统计当前线程执行task时分配的字节数,先预热一次并扣除统计本身的开销
+     */
+    private static long allocatedBytes(Runnable task) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        task.run();
+        long start = bean.getThreadAllocatedBytes(id);
+        long overhead = bean.getThreadAllocatedBytes(id) - start;
+        start = bean.getThreadAllocatedBytes(id);
+        task.run();
+        long end = bean.getThreadAllocatedBytes(id);
+        return Math.max(0, end - start - overhead);
+    }
+
+    private static class FakeLinearLayoutManager extends LinearLayoutManager {
+        private final int mFirst;
+        private final int mLast;
+
+        FakeLinearLayoutManager(int first, int last) {
+            super(null);
+            mFirst = first;
+            mLast = last;
+        }
+
+        @Override
+        public int findFirstVisibleItemPosition() {
+            return mFirst;
+        }
+
+        @Override
+        public int findLastVisibleItemPosition() {
+            return mLast;
+        }
+    }
+
+    private static class FakeStaggeredLayoutManager extends StaggeredGridLayoutManager {
+        private final int mSpanCount;
+
+        FakeStaggeredLayoutManager(int spanCount) {
+            super(spanCount, VERTICAL);
+            mSpanCount = spanCount;
+        }
+
+        @Override
+        public int getSpanCount() {
+            return mSpanCount;
+        }
+
+        @Override
+        public int[] findFirstVisibleItemPositions(int[] into) {
+            for (int i = 0; i < into.length; i++) {
+                into[i] = i == 0 ? RecyclerView.NO_POSITION : 10 + i - 1;
+            }
+            return into;
+        }
+
+        @Override
+        public int[] findLastVisibleItemPositions(int[] into) {
+            for (int i = 0; i < into.length; i++) {
+                into[i] = 10 + i;
+            }
+            return into;
+        }
+    }
+}